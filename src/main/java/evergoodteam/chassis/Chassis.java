@@ -1,6 +1,10 @@
 package evergoodteam.chassis;
 
+import evergoodteam.chassis.config.ConfigWatcher;
+import evergoodteam.chassis.config.ConfigWriteQueue;
+import evergoodteam.chassis.config.networking.ConfigNetworking;
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,6 +18,13 @@ public class Chassis implements ModInitializer {
     public void onInitialize() {
         LOGGER.info("Initializing Chassis");
 
+        ConfigWatcher.start();
+        ConfigNetworking.registerServer();
+        ServerLifecycleEvents.SERVER_STARTED.register(server -> {
+            if (server.isDedicated()) ConfigWatcher.setExecutor(server);
+        });
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> ConfigWriteQueue.flushAll());
+
         //ChassisTestFeatures.init();
         //ChassisTestFeatures.initProviderRegistry();
     }
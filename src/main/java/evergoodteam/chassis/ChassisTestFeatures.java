@@ -41,6 +41,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static evergoodteam.chassis.util.Reference.*;
@@ -64,7 +65,7 @@ public class ChassisTestFeatures {
     });
 
     public static void initProviderRegistry() {
-        CHASSIS_RESOURCES.providerRegistry = () -> {
+        CHASSIS_RESOURCES.setProviderRegistry(() -> {
             CHASSIS_RESOURCES
                     .addProvider(ChassisLanguageProvider.create(CHASSIS_RESOURCES)
                             .build(translationBuilder -> {
@@ -134,7 +135,7 @@ public class ChassisTestFeatures {
                             })
                     )
                     .runProviders();
-        };
+        });
     }
 
     public static void init() {
@@ -144,7 +145,6 @@ public class ChassisTestFeatures {
                 .setColorPoints(50, "264653", "2a9d8f", "e9c46a", "f4a261", "e76f51", "264653")
                 .setScrollDelay(4));
         CHASSIS_CONFIGS.getNetworkHandler().registerServerConnectionListener();
-        CHASSIS_CONFIGS.getNetworkHandler().registerHandshakeReceiver();
 
         CategoryOption EMPTY = new CategoryOption(CHASSIS_CONFIGS, "Empty Category", "").getBuilder()
                 .useFrame(true)
@@ -189,6 +189,9 @@ public class ChassisTestFeatures {
                         .addDoubleOption(new DoubleSliderOption("second_Double", 0, 100, 53.1, Text.literal("Another Slider"), Text.empty()).getBuilder()
                                 .setComment("Secondary double, should have default values here ->").build())
                         .addStringSetOption(new ColorOption("extraSpaceBelow", "ffffff"))
+                        .addListOption(new ListOption<>("integerList", List.of(1, 2, 3), ElementCodec.INTEGER, Text.literal("Integer List"), Text.empty()))
+                        .addMapOption(new MapOption<>("dimensionScale", Map.of(new Identifier("minecraft:overworld"), 1.0), ElementCodec.IDENTIFIER, ElementCodec.DOUBLE, Text.literal("Dimension Scale"), Text.empty()))
+                        .addIdentifierSetOption(new IdentifierSetOption("blockList", List.of(new Identifier("minecraft:stone"), new Identifier("minecraft:dirt")), Text.literal("Block List"), Text.empty()))
                 )
                 .registerProperties();
 
@@ -2,12 +2,18 @@ package evergoodteam.chassis.client;
 
 import evergoodteam.chassis.client.gui.shader.ShaderWrapper;
 import evergoodteam.chassis.client.gui.text.GradientTextRenderer;
+import evergoodteam.chassis.config.ConfigWatcher;
+import evergoodteam.chassis.config.ConfigWriteQueue;
+import evergoodteam.chassis.config.networking.ConfigNetworking;
 import evergoodteam.chassis.util.handlers.RegistryHandler;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.fabricmc.fabric.api.blockrenderlayer.v1.BlockRenderLayerMap;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.minecraft.block.Block;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.render.RenderLayer;
 import net.minecraft.client.render.VertexFormats;
 import net.minecraft.util.Identifier;
@@ -27,7 +33,10 @@ public class ChassisClient implements ClientModInitializer {
     public void onInitializeClient() {
         LOGGER.info("Chassis client initialization");
 
-        RegistryHandler.getConfigurations().forEach((string, config) -> config.getNetworkHandler().registerClientReceiverAndResponse());
+        ConfigNetworking.registerClient();
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> ConfigNetworking.clearOverlays());
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> ConfigWriteQueue.flushAll());
+        ConfigWatcher.setExecutor(MinecraftClient.getInstance());
 
         for (Block block : RegistryHandler.getTransparentBlocks()) {
             BlockRenderLayerMap.INSTANCE.putBlock(block, RenderLayer.getCutout());
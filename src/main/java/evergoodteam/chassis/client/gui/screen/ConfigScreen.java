@@ -101,6 +101,7 @@ public class ConfigScreen extends ConfigOptionsScreen {
         // Save and close
         this.addDrawableChild(ButtonWidget.builder(ChassisScreenTexts.SAVE, (buttonWidget) -> {
             config.getHandler().writeUserOptions();
+            config.getHandler().flush();
             LOGGER.debug("Saved config options for \"{}\"", config.getIdentifier());
             client.setScreen(this.parent);
         }).position(this.width / 2 - 50, this.height - 27).size(100, 20).build());
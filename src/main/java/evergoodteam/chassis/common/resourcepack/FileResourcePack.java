@@ -19,9 +19,12 @@ import org.slf4j.Logger;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static evergoodteam.chassis.util.Reference.CMI;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -29,15 +32,19 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class FileResourcePack extends AbstractFileResourcePack {
 
     private static final Logger LOGGER = getLogger(CMI + "/R/File");
-    private static final Pattern RESOURCEPACK_PATH = Pattern.compile("[a-z0-9-_]+");
-    public static final List<FileResourcePack> BUILT = new ArrayList<>();
+    private static final @Nullable WatchService WATCHER = createWatcher();
+    private static final Map<Path, WatchKey> WATCH_KEYS = new ConcurrentHashMap<>();
+    public static final List<FileResourcePack> BUILT = new CopyOnWriteArrayList<>();
+    private static final Map<Path, CompletableFuture<?>> GENERATIONS = new ConcurrentHashMap<>();
 
     private final String id;
     private final ResourceType resourceType;
     private final PackResourceMetadata packMetadata;
     private final Path basePath;
-    private final String separator;
-    private Set<String> namespaces;
+    private final Path archivePath;
+    private @Nullable ResourceArchive archive;
+    private boolean archiveRead = false;
+    private final Map<ResourceType, ResourceIndex> indexes = new ConcurrentHashMap<>(); // Built while holding the map's monitor
 
     public FileResourcePack(String namespace, Text description, ResourceType resourceType, Path basePath) {
         super(namespace, true);
@@ -45,51 +52,158 @@ public class FileResourcePack extends AbstractFileResourcePack {
         this.resourceType = resourceType;
         this.packMetadata = new PackResourceMetadata(description, SharedConstants.getGameVersion().getResourceVersion(ResourceType.CLIENT_RESOURCES), Optional.empty());
         this.basePath = basePath.resolve(namespace).resolve("resources").toAbsolutePath().normalize();
-        this.separator = basePath.getFileSystem().getSeparator();
+        this.archivePath = this.basePath.resolveSibling(ResourceArchive.FILE_NAME);
 
         BUILT.add(this);
     }
 
     /**
-     * Will return null if {@code resourcepacks\{namespace}\resources\assets} doesn't exist
+     * Returns the index of the provided type's directory, building it if the tree changed since it was last built.
+     * Entries are served from the pack's {@link ResourceArchive} if it was sealed, otherwise from the loose files.
      */
-    private Path getPath(String filename) {
-        Path childPath = basePath.resolve(filename.replace("/", separator));
-        if (childPath.startsWith(basePath) && Files.exists(childPath)) return childPath;
-        else return null;
+    public ResourceIndex getIndex(ResourceType type) {
+        awaitGeneration();
+        pollChanges();
+        ResourceIndex index = indexes.get(type);
+        if (index != null) return index;
+
+        synchronized (indexes) {
+            index = indexes.get(type);
+            if (index == null) {
+                long start = System.nanoTime();
+                ResourceArchive archive = getArchive();
+                if (archive != null) index = archive.index(type.getDirectory(), id);
+                else {
+                    watch(basePath);
+                    index = ResourceIndex.build(basePath.resolve(type.getDirectory()), id, FileResourcePack::watch);
+                }
+                indexes.put(type, index);
+                LOGGER.debug("Indexed {} files of {} in {} ms", index.size(), id, (System.nanoTime() - start) / 1_000_000);
+            }
+            return index;
+        }
     }
 
     /**
-     * From {@link ModNioResourcePack#findResources}
+     * Discards the indexes of this pack, rebuilt on the next lookup.
      */
-    @Override
-    public void findResources(ResourceType type, String namespace, String path, ResultConsumer visitor) {
-        String separator = basePath.getFileSystem().getSeparator();
-        Path nsPath = basePath.resolve(type.getDirectory()).resolve(namespace);
-        Path searchPath = nsPath.resolve(path.replace("/", separator)).normalize();
-        if (!Files.exists(searchPath)) return;
+    public void invalidate() {
+        synchronized (indexes) {
+            indexes.clear();
+            archive = null;
+            archiveRead = false;
+        }
+    }
+
+    /**
+     * Returns the sealed archive of this pack, or null if there's none.
+     */
+    private @Nullable ResourceArchive getArchive() {
+        synchronized (indexes) {
+            if (!archiveRead) {
+                // Also picks up archives sealed or deleted later on
+                watch(archivePath.getParent());
+                archive = Files.isRegularFile(archivePath) ? ResourceArchive.open(archivePath, id) : null;
+                archiveRead = true;
+            }
+            return archive;
+        }
+    }
 
+    /**
+     * Discards the indexes of every pack serving files from the provided directory, e.g. after generating resources in it.
+     */
+    public static void invalidate(Path resources) {
+        Path normalized = resources.toAbsolutePath().normalize();
+        List<FileResourcePack> packs = BUILT.stream()
+                .filter(pack -> pack.basePath.startsWith(normalized) || normalized.startsWith(pack.basePath))
+                .toList();
+
+        // Cancelled before invalidating, so that the watches registered by the next indexing are kept
+        packs.forEach(FileResourcePack::cancelWatches);
+        packs.forEach(FileResourcePack::invalidate);
+    }
+
+    /**
+     * Stops watching the directories of this pack, which are watched again when it's indexed. Packs sharing a directory
+     * share its base path, so they're always invalidated together.
+     */
+    private void cancelWatches() {
+        Iterator<Map.Entry<Path, WatchKey>> iterator = WATCH_KEYS.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, WatchKey> entry = iterator.next();
+            if (!entry.getKey().startsWith(basePath) && !entry.getKey().equals(archivePath.getParent())) continue;
+
+            entry.getValue().cancel();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Registers the generation of the resources in the provided directory, awaited by the packs serving them once they're opened.
+     */
+    public static void setGeneration(Path resources, CompletableFuture<?> generation) {
+        GENERATIONS.put(resources.toAbsolutePath().normalize(), generation);
+    }
+
+    /**
+     * Blocks until the resources of this pack are generated, if they're being generated in the background.
+     */
+    private void awaitGeneration() {
+        CompletableFuture<?> generation = GENERATIONS.get(basePath);
+        if (generation == null || generation.isDone()) return;
+
+        long start = System.nanoTime();
         try {
-            Files.walkFileTree(searchPath, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                    String filename = nsPath.relativize(file).toString().replace(separator, "/");
-                    Identifier identifier = Identifier.of(namespace, filename);
-
-                    if (identifier == null) {
-                        LOGGER.error("Invalid path in mod resource-pack {}: {}:{}, ignoring", id, namespace, filename);
-                    } else {
-                        visitor.accept(identifier, InputSupplier.create(file));
-                    }
-
-                    return FileVisitResult.CONTINUE;
-                }
-            });
+            generation.join();
+        } catch (CompletionException | CancellationException e) {
+            // Logged by the generation, whatever was generated is served
+        }
+        LOGGER.info("Waited {} ms for the resources of {} to be generated", (System.nanoTime() - start) / 1_000_000, id);
+    }
+
+    /**
+     * Drains the changes reported by the watcher, invalidating the packs whose tree had files or directories created or deleted.
+     */
+    private static void pollChanges() {
+        if (WATCHER == null) return;
+
+        WatchKey key;
+        while ((key = WATCHER.poll()) != null) {
+            Path dir = (Path) key.watchable();
+            key.pollEvents();
+            key.reset();
+            invalidate(dir);
+        }
+    }
+
+    private static void watch(Path dir) {
+        if (WATCHER == null) return;
+
+        try {
+            WATCH_KEYS.put(dir, dir.register(WATCHER, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE));
         } catch (IOException e) {
-            LOGGER.error("findResources failed at path {} in namespace {}", path, namespace, e);
+            LOGGER.debug("Unable to watch {}, changes won't be picked up until the next generation", dir, e);
         }
     }
 
+    private static @Nullable WatchService createWatcher() {
+        try {
+            return FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Unable to watch generated resource-packs, they will be indexed again on every reload", e);
+            return null;
+        }
+    }
+
+    /**
+     * From {@link ModNioResourcePack#findResources}, answered from the {@link ResourceIndex}
+     */
+    @Override
+    public void findResources(ResourceType type, String namespace, String path, ResultConsumer visitor) {
+        getIndex(type).forEach(namespace, path, visitor);
+    }
+
     /**
      * From {@link net.fabricmc.fabric.impl.resource.loader.FabricModResourcePack#openRoot(java.lang.String...)}
      */
@@ -105,6 +219,12 @@ public class FileResourcePack extends AbstractFileResourcePack {
             return () -> IOUtils.toInputStream(pack, Charsets.UTF_8);
         } else if ("pack.png".equals(fileName)) {
             // Account for provider-generated icon
+            awaitGeneration();
+            pollChanges();
+            ResourceArchive archive = getArchive();
+            InputSupplier<InputStream> packed = archive == null ? null : archive.get(fileName);
+            if (packed != null) return packed;
+
             Path generated = basePath.resolve("pack.png");
             if(generated.toFile().exists()) return InputSupplier.create(generated);
 
@@ -121,46 +241,12 @@ public class FileResourcePack extends AbstractFileResourcePack {
     @Nullable
     @Override
     public InputSupplier<InputStream> open(ResourceType type, Identifier id) {
-        final Path path = getPath(getFilename(type, id));
-        return path == null ? null : InputSupplier.create(path);
-    }
-
-    private static String getFilename(ResourceType type, Identifier id) {
-        return String.format(Locale.ROOT, "%s/%s/%s", type.getDirectory(), id.getNamespace(), id.getPath());
+        return getIndex(type).get(id);
     }
 
     @Override
     public Set<String> getNamespaces(ResourceType type) {
-        if (this.namespaces == null) {
-            Path file = getPath(type.getDirectory());
-
-            if (file == null) LOGGER.error("Invalid path, the ResourcePack folder may not exist for \"%s\"".formatted(id));
-
-            if (!Files.isDirectory(file)) {
-                return Collections.emptySet();
-            }
-
-            Set<String> namespaces = new HashSet<>();
-            try (DirectoryStream<Path> stream = Files.newDirectoryStream(file, Files::isDirectory)) {
-                for (Path path : stream) {
-                    String s = path.getFileName().toString();
-
-                    s = s.replace(separator, "");
-
-                    if (RESOURCEPACK_PATH.matcher(s).matches()) {
-                        namespaces.add(s);
-                    } else {
-                        LOGGER.error("Invalid namespace format at {}", path);
-                    }
-                }
-            } catch (IOException e) {
-                LOGGER.error("Could not get namespaces", e);
-            }
-
-            this.namespaces = namespaces;
-        }
-
-        return this.namespaces;
+        return getIndex(type).getNamespaces();
     }
 
     @Nullable
@@ -180,5 +266,7 @@ public class FileResourcePack extends AbstractFileResourcePack {
 
     @Override
     public void close() {
+        // Without a watcher, the only way to pick up changes is indexing again once per reload
+        if (WATCHER == null) invalidate();
     }
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+package evergoodteam.chassis.common.resourcepack;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import net.minecraft.data.DataWriter;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static evergoodteam.chassis.util.Reference.CMI;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Record of the files generated for a {@link ResourcePackBase}, kept next to its resources so that generation is incremental
+ * instead of starting from an empty directory. <p>
+ * Every file written by a provider is recorded with the hash of its content and, optionally, of the input it was made from.
+ * Once every provider is done, files generated by the previous run but not by this one are deleted, while unchanged files are
+ * left untouched, since the data writer skips files whose hash didn't change. Providers with expensive inputs, such as
+ * downloaded textures, can {@link #reuse} the file on disk when its input is the same as last time.
+ */
+public class GenerationCache {
+
+    private static final Logger LOGGER = getLogger(CMI + "/R/Cache");
+    @SuppressWarnings("deprecation") // Same hash as the data writer, not used for security
+    private static final HashFunction HASH = Hashing.sha1();
+    public static final String FILE_NAME = "generation.cache";
+    private static final String NO_INPUT = "-";
+
+    private final Path file;
+    private final Path resources;
+    private final Map<String, Output> previous;
+    private final Map<String, Output> current = new ConcurrentHashMap<>();
+    private final Map<String, HashCode> inputs = new ConcurrentHashMap<>();
+
+    private GenerationCache(Path file, Path resources, Map<String, Output> previous) {
+        this.file = file;
+        this.resources = resources;
+        this.previous = previous;
+    }
+
+    /**
+     * Returns {@code true} if a previous generation was recorded in the provided pack root.
+     */
+    public static boolean exists(Path root) {
+        return Files.isRegularFile(root.resolve(FILE_NAME));
+    }
+
+    /**
+     * Reads the outputs recorded in the provided pack root, starting from an empty record if there's none or it's unreadable.
+     */
+    public static GenerationCache load(Path root, Path resources) {
+        Path file = root.resolve(FILE_NAME);
+        Map<String, Output> previous = new HashMap<>();
+
+        if (Files.isRegularFile(file)) {
+            try {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    String[] parts = line.split("\t");
+                    if (parts.length != 4) continue;
+                    previous.put(parts[1], new Output(parts[0], HashCode.fromString(parts[2]), NO_INPUT.equals(parts[3]) ? null : HashCode.fromString(parts[3])));
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                LOGGER.warn("Unable to read the generation cache at {}, every file will be generated again", file, e);
+                previous.clear();
+            }
+        }
+        return new GenerationCache(file, resources, previous);
+    }
+
+    public static HashCode hash(byte[] bytes) {
+        return HASH.hashBytes(bytes);
+    }
+
+    public static HashCode hash(String string) {
+        return HASH.hashString(string, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a writer that records every file written by the provided provider before passing it on.
+     */
+    public DataWriter track(String provider, DataWriter writer) {
+        return (path, data, hashCode) -> {
+            writer.write(path, data, hashCode);
+            String key = key(path);
+            if (key != null) current.put(key, new Output(provider, hashCode, inputs.get(key)));
+        };
+    }
+
+    /**
+     * Records the input the file at the provided path is generated from, before writing it.
+     */
+    public void recordInput(Path path, HashCode input) {
+        String key = key(path);
+        if (key != null) inputs.put(key, input);
+    }
+
+    /**
+     * Returns the content of the file at the provided path if it was generated from the same input last time and wasn't
+     * changed since, otherwise null.
+     */
+    public byte @Nullable [] reuse(Path path, HashCode input) {
+        String key = key(path);
+        Output output = key == null ? null : previous.get(key);
+        if (output == null || !input.equals(output.input()) || !Files.isRegularFile(path)) return null;
+
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            return hash(bytes).equals(output.hash()) ? bytes : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the file at the provided path was generated with the same content last time and still exists,
+     * in which case it doesn't need to be written again.
+     */
+    public boolean isUnchanged(Path path, HashCode hash) {
+        String key = key(path);
+        Output output = key == null ? null : previous.get(key);
+        return output != null && hash.equals(output.hash()) && Files.isRegularFile(path);
+    }
+
+    /**
+     * Deletes the files that were generated last time but not this time and saves this generation's record.
+     * Must only be called once every provider completed successfully, since missing outputs are considered stale.
+     */
+    public void finish() {
+        int removed = 0;
+        for (String key : previous.keySet()) {
+            if (current.containsKey(key)) continue;
+            try {
+                if (Files.deleteIfExists(resources.resolve(key))) removed++;
+            } catch (IOException e) {
+                LOGGER.warn("Unable to delete stale generated file {}", key, e);
+            }
+        }
+
+        int written = 0;
+        for (Map.Entry<String, Output> entry : current.entrySet()) {
+            Output old = previous.get(entry.getKey());
+            if (old == null || !old.hash().equals(entry.getValue().hash())) written++;
+        }
+        LOGGER.info("Generated {} files for {}: {} new or changed, {} stale removed", current.size(), resources.getParent().getFileName(), written, removed);
+
+        save();
+    }
+
+    private void save() {
+        List<String> lines = new ArrayList<>(current.size());
+        new TreeMap<>(current).forEach((key, output) -> lines.add(String.join("\t", output.provider(), key, output.hash().toString(),
+                output.input() == null ? NO_INPUT : output.input().toString())));
+
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Unable to save the generation cache at {}", file, e);
+        }
+    }
+
+    /**
+     * Returns the path relative to the resources directory with forward slashes, or null for files outside of it.
+     */
+    private @Nullable String key(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        Path base = resources.toAbsolutePath().normalize();
+        if (!normalized.startsWith(base)) return null;
+        return base.relativize(normalized).toString().replace(normalized.getFileSystem().getSeparator(), "/");
+    }
+
+    private record Output(String provider, HashCode hash, @Nullable HashCode input) {
+    }
+}
@@ -0,0 +1,326 @@
+package evergoodteam.chassis.common.resourcepack;
+
+import net.minecraft.resource.InputSupplier;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static evergoodteam.chassis.util.Reference.CMI;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Generated resources sealed into a single zip archive, read through positional reads of the file. <p>
+ * The central directory is read once when the archive is opened, so serving an entry only reads its own bytes: stored
+ * entries, the only kind {@link #write} produces, are streamed straight from the file, and deflated entries are inflated
+ * from it. The file is only kept open while an entry is read, so that it can be replaced or deleted at any other time,
+ * which Windows wouldn't allow while a memory mapping of it is alive. Archives are written with plain zip entries, so they
+ * can be opened by any tool, but ZIP64 archives (over 65535 entries or 4 GB) aren't supported.
+ */
+public final class ResourceArchive {
+
+    private static final Logger LOGGER = getLogger(CMI + "/R/Archive");
+    public static final String FILE_NAME = "resources.zip";
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int LOCAL_SIZE = 30;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_HEADER = 0x06054b50;
+    private static final int END_SIZE = 22;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+    // Zip times are local, two seconds past the earliest DOS time leaves no room for rounding below it and keeps archives reproducible
+    private static final LocalDateTime FIXED_TIME = LocalDateTime.of(1980, 1, 1, 0, 0, 2);
+
+    private final Path path;
+    private final Map<String, Entry> entries;
+
+    private ResourceArchive(Path path, Map<String, Entry> entries) {
+        this.path = path;
+        this.entries = entries;
+    }
+
+    /**
+     * Reads the central directory of the provided archive, returning null if it can't be read.
+     */
+    public static @Nullable ResourceArchive open(Path archive, String packId) {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            return new ResourceArchive(archive, readEntries(channel));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Unable to read the resource archive of {} at {}, falling back to loose files", packId, archive, e);
+            return null;
+        }
+    }
+
+    private static Map<String, Entry> readEntries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int tailLength = (int) Math.min(size, END_SIZE + 0xFFFF);
+        ByteBuffer tail = read(channel, size - tailLength, tailLength);
+        int end = findEnd(tail);
+        int count = Short.toUnsignedInt(tail.getShort(end + 10));
+        long directorySize = Integer.toUnsignedLong(tail.getInt(end + 12));
+        long directoryOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+        if (count == 0xFFFF || directoryOffset == 0xFFFFFFFFL) throw new IOException("ZIP64 archives aren't supported");
+        if (directoryOffset + directorySize > size) throw new IOException("corrupted end of central directory");
+
+        ByteBuffer buffer = read(channel, directoryOffset, (int) directorySize);
+        Map<String, Entry> entries = new HashMap<>(count * 2);
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            if (buffer.getInt(position) != CENTRAL_HEADER) throw new IOException("corrupted central directory");
+
+            int method = Short.toUnsignedInt(buffer.getShort(position + 10));
+            long compressedSize = Integer.toUnsignedLong(buffer.getInt(position + 20));
+            int nameLength = Short.toUnsignedInt(buffer.getShort(position + 28));
+            int extraLength = Short.toUnsignedInt(buffer.getShort(position + 30));
+            int commentLength = Short.toUnsignedInt(buffer.getShort(position + 32));
+            long localOffset = Integer.toUnsignedLong(buffer.getInt(position + 42));
+            String name = readName(buffer, position + 46, nameLength);
+            position += 46 + nameLength + extraLength + commentLength;
+
+            if (name.endsWith("/")) continue;
+            if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED)
+                throw new IOException("unsupported compression method %s for %s".formatted(method, name));
+            if (localOffset + LOCAL_SIZE + compressedSize > directoryOffset) throw new IOException("corrupted local header for " + name);
+
+            entries.put(name, new Entry(localOffset, compressedSize, method == ZipEntry.DEFLATED));
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the provided range of the file into a new little-endian buffer.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException("truncated archive");
+        }
+        return buffer.flip();
+    }
+
+    private static int findEnd(ByteBuffer buffer) throws IOException {
+        for (int i = buffer.limit() - END_SIZE; i >= 0; i--) {
+            if (buffer.getInt(i) == END_HEADER) return i;
+        }
+        throw new IOException("missing end of central directory");
+    }
+
+    private static String readName(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the index of the entries under the provided top level directory, i.e. {@code assets} or {@code data}.
+     */
+    public ResourceIndex index(String directory, String packId) {
+        ResourceIndex.Builder builder = new ResourceIndex.Builder(packId);
+        String prefix = directory + "/";
+
+        entries.forEach((name, entry) -> {
+            if (!name.startsWith(prefix)) return;
+
+            int separator = name.indexOf('/', prefix.length());
+            if (separator < 0) return; // Files directly inside the directory don't belong to a namespace
+            builder.add(name.substring(prefix.length(), separator), name.substring(separator + 1), supplier(entry));
+        });
+        return builder.build();
+    }
+
+    /**
+     * Returns the entry at the provided path from the root of the archive, e.g. {@code pack.png}, or null if there's none.
+     */
+    public @Nullable InputSupplier<InputStream> get(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? null : supplier(entry);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private InputSupplier<InputStream> supplier(Entry entry) {
+        return () -> {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                // The local header can have a different extra field than the central one
+                ByteBuffer header = read(channel, entry.localOffset(), LOCAL_SIZE);
+                if (header.getInt(0) != LOCAL_HEADER) throw new IOException("the resource archive %s changed since it was opened".formatted(path));
+                long offset = entry.localOffset() + LOCAL_SIZE + Short.toUnsignedInt(header.getShort(26)) + Short.toUnsignedInt(header.getShort(28));
+
+                ChannelInputStream stream = new ChannelInputStream(channel, offset, entry.size(), entry.deflated());
+                if (!entry.deflated()) return stream;
+
+                Inflater inflater = new Inflater(true);
+                return new InflaterInputStream(stream, inflater, 8192) {
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        inflater.end();
+                    }
+                };
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Writes every file under the provided directory to a stored zip archive, in path order, replacing the archive once complete.
+     * Directories and files starting with a dot, such as the generator's {@code .cache}, are skipped.
+     *
+     * @throws IOException if the resources can't be read or would need a ZIP64 archive, which {@link #open} doesn't support,
+     *                     in which case the existing archive is left untouched
+     */
+    public static void write(Path resources, Path archive) throws IOException {
+        Path temp = archive.resolveSibling(archive.getFileName() + ".tmp");
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(resources)) {
+            files = stream.filter(Files::isRegularFile)
+                    .filter(file -> !isHidden(resources.relativize(file)))
+                    .sorted()
+                    .toList();
+        }
+        checkLimits(resources, files);
+
+        CRC32 crc = new CRC32();
+        try (ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.setMethod(ZipOutputStream.STORED);
+            for (Path file : files) {
+                byte[] bytes = Files.readAllBytes(file);
+                crc.reset();
+                crc.update(bytes);
+
+                ZipEntry entry = new ZipEntry(resources.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/"));
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(bytes.length);
+                entry.setCompressedSize(bytes.length);
+                entry.setCrc(crc.getValue());
+                entry.setTimeLocal(FIXED_TIME);
+                out.putNextEntry(entry);
+                out.write(bytes);
+                out.closeEntry();
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        try {
+            Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING);
+        }
+        LOGGER.debug("Sealed {} files into {}", files.size(), archive);
+    }
+
+    /**
+     * Throws if the provided files would make {@link ZipOutputStream} switch to ZIP64 records.
+     */
+    private static void checkLimits(Path resources, List<Path> files) throws IOException {
+        if (files.size() >= MAX_ENTRIES)
+            throw new IOException("%s files are too many for a resource archive, the limit is %s".formatted(files.size(), MAX_ENTRIES - 1));
+
+        long total = 0;
+        for (Path file : files) {
+            // Local and central headers both hold the name
+            int nameLength = resources.relativize(file).toString().getBytes(StandardCharsets.UTF_8).length;
+            total += Files.size(file) + 30 + 46 + 2L * nameLength;
+        }
+        if (total + END_SIZE >= MAX_SIZE) throw new IOException("resources are too large for a resource archive, over 4 GB");
+    }
+
+    private static boolean isHidden(Path relative) {
+        for (Path part : relative) {
+            if (part.toString().startsWith(".")) return true;
+        }
+        return false;
+    }
+
+    private record Entry(long localOffset, long size, boolean deflated) {
+    }
+
+    /**
+     * Reads a range of the file, closing it once done.
+     */
+    private static final class ChannelInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final byte[] single = new byte[1];
+        private long position;
+        private final long end;
+        private boolean padding;
+
+        /**
+         * @param padding if a zero byte should be read after the range, which raw inflaters need to detect the end of the data
+         */
+        ChannelInputStream(FileChannel channel, long position, long size, boolean padding) {
+            this.channel = channel;
+            this.position = position;
+            this.end = position + size;
+            this.padding = padding;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (position >= end) {
+                if (!padding) return -1;
+                padding = false;
+                bytes[offset] = 0;
+                return 1;
+            }
+
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, end - position)), position);
+            if (read < 0) throw new EOFException("truncated archive");
+            position += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        @Override
+        public byte[] readAllBytes() throws IOException {
+            if (padding || end - position > Integer.MAX_VALUE) return super.readAllBytes();
+
+            ByteBuffer buffer = ResourceArchive.read(channel, position, (int) (end - position));
+            position = end;
+            return buffer.array();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
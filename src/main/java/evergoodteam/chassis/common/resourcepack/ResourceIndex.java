@@ -0,0 +1,193 @@
+package evergoodteam.chassis.common.resourcepack;
+
+import net.minecraft.resource.InputSupplier;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import static evergoodteam.chassis.util.Reference.CMI;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Immutable index of every file under the {@code assets} or {@code data} directory of a {@link FileResourcePack}, built with
+ * a single walk of the directory or a single read of a {@link ResourceArchive}'s central directory. <p>
+ * Files are looked up by identifier in a hash map, while each namespace keeps its identifiers sorted by path, so that listing
+ * the files under a path is a binary search followed by a scan of the matching range. Identifiers and input suppliers are
+ * created once, when indexing.
+ */
+public final class ResourceIndex {
+
+    private static final Logger LOGGER = getLogger(CMI + "/R/Index");
+    private static final Pattern NAMESPACE = Pattern.compile("[a-z0-9-_]+");
+    private static final Comparator<Identifier> BY_PATH = Comparator.comparing(Identifier::getPath);
+    public static final ResourceIndex EMPTY = new ResourceIndex(Map.of(), Map.of());
+
+    private final Map<Identifier, InputSupplier<InputStream>> files;
+    private final Map<String, Identifier[]> namespaces;
+
+    private ResourceIndex(Map<Identifier, InputSupplier<InputStream>> files, Map<String, Identifier[]> namespaces) {
+        this.files = files;
+        this.namespaces = namespaces;
+    }
+
+    /**
+     * Indexes the provided directory, calling {@code onDirectory} for every directory visited. Returns {@link #EMPTY} if the
+     * directory doesn't exist.
+     *
+     * @param packId id of the pack being indexed, for logging
+     */
+    public static ResourceIndex build(Path directory, String packId, Consumer<Path> onDirectory) {
+        if (!Files.isDirectory(directory)) return EMPTY;
+
+        Builder builder = new Builder(packId);
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                // Path of the directory being visited relative to its namespace, ending with a slash
+                private final Deque<String> prefixes = new ArrayDeque<>();
+                private String namespace;
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (dir.equals(directory)) {
+                        onDirectory.accept(dir);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    String name = dir.getFileName().toString();
+                    if (namespace == null) {
+                        if (!builder.addNamespace(name)) return FileVisitResult.SKIP_SUBTREE;
+                        namespace = name;
+                        prefixes.push("");
+                    } else prefixes.push(prefixes.peek() + name + "/");
+
+                    onDirectory.accept(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    if (!prefixes.isEmpty()) {
+                        prefixes.pop();
+                        if (prefixes.isEmpty()) namespace = null;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (namespace == null || !attrs.isRegularFile()) return FileVisitResult.CONTINUE;
+
+                    builder.add(namespace, prefixes.peek() + file.getFileName().toString(), InputSupplier.create(file));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    LOGGER.error("Unable to index {} in resource-pack {}", file, packId, exc);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.error("Unable to index resource-pack {} at {}", packId, directory, e);
+        }
+        return builder.build();
+    }
+
+    public @Nullable InputSupplier<InputStream> get(Identifier id) {
+        return files.get(id);
+    }
+
+    public Set<String> getNamespaces() {
+        return namespaces.keySet();
+    }
+
+    public int size() {
+        return files.size();
+    }
+
+    /**
+     * Calls the provided consumer for every file of the namespace at the provided path or under it, in path order.
+     */
+    public void forEach(String namespace, String path, BiConsumer<Identifier, InputSupplier<InputStream>> consumer) {
+        Identifier[] identifiers = namespaces.get(namespace);
+        if (identifiers == null) return;
+
+        int low = 0;
+        int high = identifiers.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (identifiers[mid].getPath().compareTo(path) < 0) low = mid + 1;
+            else high = mid;
+        }
+
+        boolean directory = path.isEmpty() || path.endsWith("/");
+        for (int i = low; i < identifiers.length; i++) {
+            String current = identifiers[i].getPath();
+            if (!current.startsWith(path)) break;
+            // Skips siblings sharing the prefix, e.g. "models2" when listing "models"
+            if (directory || current.length() == path.length() || current.charAt(path.length()) == '/')
+                consumer.accept(identifiers[i], files.get(identifiers[i]));
+        }
+    }
+
+    /**
+     * Collects the files of an index, validating namespaces and paths the same way for every source.
+     */
+    static class Builder {
+
+        private final String packId;
+        private final Map<Identifier, InputSupplier<InputStream>> files = new HashMap<>();
+        private final Map<String, List<Identifier>> namespaces = new HashMap<>();
+        private final Set<String> invalidNamespaces = new HashSet<>();
+
+        Builder(String packId) {
+            this.packId = packId;
+        }
+
+        /**
+         * Adds the provided namespace, even if it has no files, returning {@code false} if its name is invalid.
+         */
+        boolean addNamespace(String namespace) {
+            if (namespaces.containsKey(namespace)) return true;
+            if (invalidNamespaces.contains(namespace)) return false;
+
+            if (!NAMESPACE.matcher(namespace).matches()) {
+                LOGGER.error("Invalid namespace format \"{}\" in resource-pack {}", namespace, packId);
+                invalidNamespaces.add(namespace);
+                return false;
+            }
+            namespaces.put(namespace, new ArrayList<>());
+            return true;
+        }
+
+        void add(String namespace, String path, InputSupplier<InputStream> supplier) {
+            if (!addNamespace(namespace)) return;
+
+            Identifier identifier = Identifier.of(namespace, path);
+            if (identifier == null) {
+                LOGGER.error("Invalid path in mod resource-pack {}: {}:{}, ignoring", packId, namespace, path);
+                return;
+            }
+            if (files.put(identifier, supplier) == null) namespaces.get(namespace).add(identifier);
+        }
+
+        ResourceIndex build() {
+            Map<String, Identifier[]> sorted = new HashMap<>(namespaces.size() * 2);
+            namespaces.forEach((namespace, identifiers) -> {
+                Identifier[] array = identifiers.toArray(new Identifier[0]);
+                Arrays.sort(array, BY_PATH);
+                sorted.put(namespace, array);
+            });
+            return new ResourceIndex(Collections.unmodifiableMap(files), Collections.unmodifiableMap(sorted));
+        }
+    }
+}
@@ -2,7 +2,10 @@ package evergoodteam.chassis.common.resourcepack;
 
 import evergoodteam.chassis.config.ConfigBase;
 import evergoodteam.chassis.config.option.BooleanOption;
+import evergoodteam.chassis.datagen.ProviderScheduler;
+import evergoodteam.chassis.datagen.TrackedProvider;
 import evergoodteam.chassis.datagen.providers.ChassisTextureProvider;
+import evergoodteam.chassis.util.DirectoryUtils;
 import evergoodteam.chassis.util.StringUtils;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.fabric.api.datagen.v1.FabricDataGenerator;
@@ -22,10 +25,12 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static evergoodteam.chassis.util.Reference.CMI;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -48,9 +53,17 @@ public class ResourcePackBase {
     private String hexColor = "AAAAAA";
     public final ModContainer modContainer;
     public final FabricDataGenerator generator;
-    public @Nullable ProviderRegistry providerRegistry;
-    private boolean providersDone = false;
-    public boolean noProviders = false;
+    /**
+     * @see #setProviderRegistry
+     */
+    public volatile @Nullable ProviderRegistry providerRegistry;
+    private @Nullable CompletableFuture<Void> generation; // Guarded by this
+    // Read by the generation running in the background
+    private volatile boolean providersDone = false;
+    public volatile boolean noProviders = false;
+    private volatile boolean packed = false;
+    private volatile @Nullable GenerationCache generationCache;
+    private final List<TrackedProvider> providers = new ArrayList<>();
 
     /**
      * Object from which a ResourcePack without a custom icon is generated
@@ -162,7 +175,18 @@ public class ResourcePackBase {
     }
 
     public boolean isLocked() {
-        return locked.getValue();
+        return locked.getAsBoolean();
+    }
+
+    /**
+     * Returns the record of the files generated by the providers currently running, or null if providers aren't running.
+     */
+    public @Nullable GenerationCache getGenerationCache() {
+        return generationCache;
+    }
+
+    public boolean isPacked() {
+        return packed;
     }
 
     public boolean areProvidersDone() {
@@ -218,6 +242,39 @@ public class ResourcePackBase {
         return this;
     }
 
+    /**
+     * Seals the generated resources into a single {@link ResourceArchive} once providers are done, removing the loose files.
+     * Packed resources are served from a memory-mapped view of the archive, making reloads of large packs much cheaper. <p>
+     * Unpacking a pack deletes its archive, its resources are generated again as loose files on the next generation.
+     */
+    public ResourcePackBase setPacked(boolean packed) {
+        this.packed = packed;
+        if (!packed) {
+            try {
+                if (Files.deleteIfExists(root.archive)) {
+                    FileResourcePack.invalidate(root.resources);
+                    // The loose files were deleted when sealing
+                    locked.setValue(false);
+                    config.getHandler().writeResourceLocks();
+                    LOGGER.info("Deleted the resource archive of {}, which isn't packed anymore", name);
+                }
+            } catch (IOException e) {
+                LOGGER.error("Unable to delete the resource archive of {}", name, e);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Sets the {@link ProviderRegistry} of this pack, whose resources are generated in the background once every mod is initialized.
+     *
+     * @see #startProviders()
+     */
+    public ResourcePackBase setProviderRegistry(@NotNull ProviderRegistry providerRegistry) {
+        this.providerRegistry = providerRegistry;
+        return this;
+    }
+
     public ResourcePackBase setColor(@NotNull String hexColor) {
         this.hexColor = hexColor;
         return this;
@@ -290,36 +347,114 @@ public class ResourcePackBase {
     /**
      * Adds a {@link DataProvider}
      *
+     * @param dependencies names of the providers of this pack that must be done before this one is run, providers without
+     *                     dependencies between them run in parallel
      * @see ProviderRegistry#registerProviders()
      */
-    public ResourcePackBase addProvider(FabricDataGenerator.Pack.Factory<DataProvider> factory) {
-        this.pack.addProvider(factory);
+    public ResourcePackBase addProvider(FabricDataGenerator.Pack.Factory<DataProvider> factory, String... dependencies) {
+        Set<String> required = Set.copyOf(Arrays.asList(dependencies));
+        FabricDataGenerator.Pack.Factory<TrackedProvider> tracked = output -> new TrackedProvider(factory.create(output), this, required);
+        this.providers.add(this.pack.addProvider(tracked));
         return this;
     }
 
     /**
      * Runs the added providers, must be called for the providers to actually be used. <p>
      * Recommended procedure is calling it inside of {@link ProviderRegistry#registerProviders()} after adding all the providers.
+     *
+     * @see #runProvidersAsync()
      */
     public void runProviders() {
         try {
-            if(noProviders) return;
-
-            if (!locked.getValue()) {
-                generator.run();
-                locked.setValue(true);
-                config.getHandler().writeResourceLocks();
-                LOGGER.info("Providers for {} done", name);
-            } else LOGGER.error("Couldn't run providers for {} because the resource is locked", name);
+            runProvidersAsync().join();
+        } catch (CompletionException e) {
+            // Already logged
+        }
+    }
+
+    /**
+     * Runs the added providers on the {@link ProviderScheduler}, in parallel with the providers of any other pack being generated.
+     * The returned future completes once resources are written and, if {@link #setPacked packed}, sealed.
+     */
+    public CompletableFuture<Void> runProvidersAsync() {
+        if (noProviders) return CompletableFuture.completedFuture(null);
+
+        if (locked.getValue()) {
+            LOGGER.debug("Skipped the providers of {}, its resources are locked", name);
+            // Also seals resources generated before the pack was packed
+            if (packed && !Files.isRegularFile(root.archive)) seal();
+            providersDone = true;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        GenerationCache cache = GenerationCache.load(path, root.resources);
+        generationCache = cache;
+        CompletableFuture<Void> future;
+        try {
+            future = ProviderScheduler.run(name, providers, cache);
+        } catch (IllegalStateException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        return future.handle((v, throwable) -> {
+            generationCache = null;
+            if (throwable != null) {
+                LOGGER.error("An error occurred while running providers for {}", name, throwable);
+                throw throwable instanceof CompletionException e ? e : new CompletionException(throwable);
+            }
+
+            cache.finish();
+            FileResourcePack.invalidate(root.resources);
+            locked.setValue(true);
+            config.getHandler().writeResourceLocks();
+            LOGGER.info("Providers for {} done", name);
+
+            if (packed) seal();
             providersDone = true;
+            return null;
+        });
+    }
+
+    /**
+     * Calls {@link ProviderRegistry#registerProviders()} on a background thread if it wasn't called yet, returning the future of
+     * the generation. Packs serving the generated resources wait for it when opened, so generation overlaps with the rest of the
+     * reload until then. <p>
+     * Called by {@link evergoodteam.chassis.mixin.ResourcePackManagerMixin} when packs are first scanned, which happens after every
+     * mod initializer ran: starting earlier would load loot and predicate classes before other mods are ready, see {@link ProviderRegistry}.
+     */
+    public synchronized CompletableFuture<Void> startProviders() {
+        if (generation == null) {
+            if (providerRegistry == null || providersDone) return CompletableFuture.completedFuture(null);
+
+            ProviderRegistry registry = providerRegistry;
+            generation = ProviderScheduler.runInBackground(name, registry::registerProviders)
+                    .whenComplete((v, throwable) -> {
+                        if (throwable != null) LOGGER.error("An error occurred while registering providers for {}", name, throwable);
+                    });
+            FileResourcePack.setGeneration(root.resources, generation);
+        }
+        return generation;
+    }
+
+    /**
+     * Writes the generated resources to the pack's {@link ResourceArchive} and deletes the loose files. <p>
+     * Since the loose files are gone, the next generation of a packed pack writes every file again instead of only the changed ones.
+     */
+    public void seal() {
+        try {
+            ResourceArchive.write(root.resources, root.archive);
+            DirectoryUtils.clean(root.resources);
+            FileResourcePack.invalidate(root.resources);
+            LOGGER.info("Sealed resources for {} into {}", name, root.archive.getFileName());
         } catch (IOException e) {
-            LOGGER.error("An error occurred while running providers for {}: {}", name, e);
+            LOGGER.error("Unable to seal resources for {}, loose files will be used", name, e);
         }
     }
 
     /**
      * Interface used for declaring, initializing and adding providers. Any sort of provider task should be done
-     * inside {@link #registerProviders()}, a method that is only called {@link evergoodteam.chassis.mixin.ResourcePackManagerMixin when resources are reloaded}.
+     * inside {@link #registerProviders()}, a method that is only called {@link evergoodteam.chassis.mixin.ResourcePackManagerMixin when resources are first reloaded},
+     * on a background thread.
      * <p><i>Why?</i>
      * <p> Check out <a href="https://github.com/DaFuqs/Spectrum/issues/190">this issue</a>: trying to load the
      * {@link net.minecraft.predicate.item.ItemPredicate ItemPredicate} class (needed for loot tables)
@@ -8,6 +8,7 @@ public class ResourcePackRoot {
 
     public final ResourcePackBase resourcePack;
     public final Path resources;
+    public final Path archive;
     public final Path assets;
     public final Path assetsNamespace;
     public final Path blockstates;
@@ -21,6 +22,7 @@ public class ResourcePackRoot {
     public ResourcePackRoot(ResourcePackBase resourcePack) {
         this.resourcePack = resourcePack;
         this.resources = resourcePack.getRootPath().resolve("resources");
+        this.archive = resourcePack.getRootPath().resolve(ResourceArchive.FILE_NAME);
         this.assets = this.resources.resolve("assets");
         this.data = this.resources.resolve("data");
         this.assetsNamespace = this.assets.resolve(resourcePack.getName());
@@ -32,9 +34,14 @@ public class ResourcePackRoot {
         this.tags = this.dataNamespace.resolve("tags");
     }
 
+    /**
+     * Creates the directories of the pack. Previously generated files are kept and updated incrementally by the providers,
+     * the pack is only cleaned when there's no {@link GenerationCache} recording them, e.g. packs generated by older versions.
+     */
     public void createRoot() {
-        DirectoryUtils.clean(resourcePack.getRootPath());
+        if (!GenerationCache.exists(resourcePack.getRootPath())) DirectoryUtils.clean(resourcePack.getRootPath());
         DirectoryUtils.create(resources);
         DirectoryUtils.create(resources, new String[]{"assets", "data"});
+        FileResourcePack.invalidate(resources);
     }
 }
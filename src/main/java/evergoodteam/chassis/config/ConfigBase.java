@@ -1,5 +1,6 @@
 package evergoodteam.chassis.config;
 
+import evergoodteam.chassis.config.format.ConfigFormat;
 import evergoodteam.chassis.config.networking.ConfigNetworking;
 import evergoodteam.chassis.config.option.*;
 import evergoodteam.chassis.util.StringUtils;
@@ -27,12 +28,14 @@ public class ConfigBase {
     public final Path dirPath;
     public final Path propertiesPath;
     public final File propertiesFile;
+    private final ConfigFormat format;
     private Text displayName;
     private final BooleanOption configLocked; // Part of default set of options
     private OptionStorage optionStorage;
     private ConfigHandler handler;
     private final ConfigWriter configWriter;
     private final ConfigNetworking networking;
+    private final ConfigSchema schema;
     private boolean strictVersion = true;
 
     /**
@@ -43,11 +46,19 @@ public class ConfigBase {
     }
 
     public ConfigBase(Identifier identifier) {
+        this(identifier, ConfigFormat.PROPERTIES);
+    }
+
+    /**
+     * Creates configs written in the provided {@link ConfigFormat}, whose extension is used for the config file.
+     */
+    public ConfigBase(Identifier identifier, ConfigFormat format) {
         this.identifier = identifier;
+        this.format = format;
         this.dirPath = !identifier.getNamespace().equals(identifier.getPath()) ?
                 configDir.resolve("%s/%s".formatted(identifier.getNamespace(), identifier.getPath())) :
                 configDir.resolve(identifier.getPath());
-        this.propertiesPath = this.dirPath.resolve(identifier.getPath() + ".properties");
+        this.propertiesPath = this.dirPath.resolve(identifier.getPath() + "." + format.getExtension());
         this.propertiesFile = new File(this.propertiesPath.toString());
         this.displayName = Text.literal(StringUtils.capitalize(identifier.toString()));
 
@@ -58,6 +69,7 @@ public class ConfigBase {
         this.optionStorage = new OptionStorage(this);
         optionStorage.getConfigLockCat().addBooleanOption(configLocked);
 
+        this.schema = new ConfigSchema(this);
         this.configWriter = new ConfigWriter(this);
         this.handler = new ConfigHandler(this);
         this.networking = new ConfigNetworking(this);
@@ -86,6 +98,23 @@ public class ConfigBase {
         return this;
     }
 
+    public boolean isBinaryCacheEnabled() {
+        return configWriter.getBinaryCache().isEnabled();
+    }
+
+    /**
+     * Enables a binary sidecar file ({@code <name>.chassisbin}), written alongside the .properties file, from which options are loaded
+     * on startup as long as the .properties file wasn't modified since. <p>
+     * This only saves parsing the text file, which still has to be checked on disk, and hasn't been benchmarked: measure the
+     * startup of the pack it's meant for before enabling it.
+     *
+     * @see ConfigBinaryCache
+     */
+    public ConfigBase setBinaryCache(boolean binaryCache) {
+        configWriter.getBinaryCache().setEnabled(binaryCache);
+        return this;
+    }
+
     public Text getDisplayTitle() {
         return this.displayName;
     }
@@ -94,6 +123,23 @@ public class ConfigBase {
         return optionStorage;
     }
 
+    /**
+     * Returns a hash of every stored option's name and value, only recomputed after an option changes.
+     *
+     * @see ConfigSerializer#getStoredContentHash()
+     */
+    public long contentHash() {
+        return configWriter.getSerializer().getStoredContentHash();
+    }
+
+    public ConfigFormat getFormat() {
+        return format;
+    }
+
+    public ConfigSchema getSchema() {
+        return schema;
+    }
+
     public ConfigHandler getHandler() {
         return handler;
     }
@@ -111,13 +157,11 @@ public class ConfigBase {
     }
 
     public boolean isLocked() {
-        return configLocked.getValue();
+        return configLocked.getAsBoolean();
     }
 
     public Optional<String> getWrittenValue(AbstractOption<?> option) {
-        if (configWriter.getSerializer().getMappedWrittenOptions().get(option.getName()) == null)
-            return Optional.empty();
-        return Optional.of(configWriter.getSerializer().getMappedWrittenOptions().get(option.getName()));
+        return Optional.ofNullable(configWriter.getSerializer().getValidatedWrittenOptions().get(option.getName()));
     }
 
 
@@ -168,18 +212,42 @@ public class ConfigBase {
         return this;
     }
 
+    /**
+     * Adds a list option to the generic category (nameless).
+     */
+    public ConfigBase addListProperty(ListOption<?> option) {
+        this.getOptionStorage().getGenericCategory().addListOption(option);
+        return this;
+    }
+
+    /**
+     * Adds a map option to the generic category (nameless).
+     */
+    public ConfigBase addMapProperty(MapOption<?, ?> option) {
+        this.getOptionStorage().getGenericCategory().addMapOption(option);
+        return this;
+    }
+
+    /**
+     * Adds an identifier set option to the generic category (nameless).
+     */
+    public ConfigBase addIdentifierSetProperty(IdentifierSetOption option) {
+        this.getOptionStorage().getGenericCategory().addIdentifierSetOption(option);
+        return this;
+    }
+
     /**
      * FILE SHOULD ALREADY EXIST. Writes user options to the config file.
      */
     public void registerProperties() {
         //log.info("REGISTERING PROPERTIES ----------------------------------------------------------");
-        configWriter.updateStoredUserFromWritten();
+        handler.readUserOptions(); // Also flushes pending writes, from the binary sidecar when it's valid
         configWriter.overwriteWithStored();
     }
     //endregion
 
     /**
-     * Opens the .properties file with the system's default text editor for the ".properties" file extension
+     * Opens the config file with the system's default text editor for its extension
      */
     public void openConfigFile() {
         Util.getOperatingSystem().open(propertiesFile);
@@ -0,0 +1,241 @@
+package evergoodteam.chassis.config;
+
+import evergoodteam.chassis.config.option.*;
+import evergoodteam.chassis.util.FileUtils;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static evergoodteam.chassis.util.Reference.CMI;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Compact binary sidecar ({@code <name>.chassisbin}) holding the typed values written in a config file. <p>
+ * The sidecar is fingerprinted with the modification time, size and checksum line of the config file it was written with:
+ * as long as these match, stored options are assigned directly from it, skipping the parsing of the text file. It's written
+ * from the values the config file was just written with, so the file is never read back to build it. <p>
+ * Its effect on startup time isn't measured by Chassis, see {@link ConfigBase#setBinaryCache(boolean)}.
+ */
+public class ConfigBinaryCache {
+
+    private static final Logger LOGGER = getLogger(CMI + "/C/Binary");
+    private static final int MAGIC = 0x43484253;
+    private static final byte FORMAT_VERSION = 2;
+    private static final byte BOOLEAN = 0;
+    private static final byte INTEGER = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte STRING = 3;
+
+    private final ConfigBase config;
+    public final Path path;
+    private boolean enabled = false;
+    private volatile Snapshot snapshot;
+
+    public ConfigBinaryCache(ConfigBase config) {
+        this.config = config;
+        this.path = config.dirPath.resolve(config.getIdentifier().getPath() + ".chassisbin");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables writing the sidecar. An existing sidecar is still read on startup, since it's only ever found if it was
+     * enabled in a previous session, and is deleted on the next write after being disabled.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the sidecar's contents if it matches the current config file, otherwise an empty optional.
+     */
+    public Optional<Snapshot> read() {
+        if (!Files.exists(path)) return Optional.empty();
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(config.propertiesPath, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        long modified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        Snapshot cached = this.snapshot;
+        if (cached != null && cached.modified() == modified && cached.size() == size) return Optional.of(cached);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) return Optional.empty();
+            if (in.readLong() != modified || in.readLong() != size || !in.readUTF().equals(readChecksumLine()))
+                return Optional.empty();
+
+            String modVersion = in.readUTF();
+            int count = in.readInt();
+            Map<String, Object> values = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte type = in.readByte();
+                values.put(name, switch (type) {
+                    case BOOLEAN -> in.readBoolean();
+                    case INTEGER -> in.readInt();
+                    case DOUBLE -> in.readDouble();
+                    case STRING -> in.readUTF();
+                    default -> throw new IOException("Unknown value type " + type);
+                });
+            }
+
+            cached = new Snapshot(modVersion, values, modified, size);
+            this.snapshot = cached;
+            return Optional.of(cached);
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring unreadable binary config at {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes the sidecar for the config file that was just written with the provided checksum line and (valid) option values,
+     * or deletes it if the binary cache is disabled.
+     */
+    public void write(String checksum, Map<String, String> written) {
+        this.snapshot = null;
+        if (!enabled) {
+            FileUtils.delete(path);
+            return;
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(config.propertiesPath, BasicFileAttributes.class);
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                out.writeLong(attributes.lastModifiedTime().toMillis());
+                out.writeLong(attributes.size());
+                out.writeUTF(checksum);
+                out.writeUTF(config.getWriter().getSerializer().getModVersion());
+                out.writeInt(written.size());
+                for (Map.Entry<String, String> entry : written.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    writeValue(out, config.getOptionStorage().getOption(entry.getKey()), entry.getValue());
+                }
+            }
+            ConfigWriter.ConfigCharSink.replace(temp, path);
+        } catch (IOException e) {
+            LOGGER.error("Unable to write the binary config at {}", path, e);
+            FileUtils.delete(temp);
+            FileUtils.delete(path);
+        }
+    }
+
+    /**
+     * Assigns the sidecar's values to the stored config and resource locks, returning {@code false} if there's no valid sidecar.
+     *
+     * @see ConfigWriter#updateStoredConfigLockFromWritten()
+     * @see ConfigWriter#updateStoredResourceLockFromWritten()
+     */
+    public boolean applyLocks() {
+        Optional<Snapshot> snapshot = read();
+        if (snapshot.isEmpty()) return false;
+
+        Map<String, Object> values = snapshot.get().values();
+        config.getOptionStorage().getConfigLockCat().getOptions().forEach(option -> option.setValueFromObject(values.get(option.getName())));
+        config.getOptionStorage().getResourceLockCat().getOptions().forEach(option -> option.setValueFromObject(values.get(option.getName())));
+        return true;
+    }
+
+    /**
+     * Assigns the sidecar's values to the stored user options, returning {@code false} if there's no valid sidecar.
+     *
+     * @see ConfigWriter#updateStoredUserFromWritten()
+     */
+    public boolean applyUserOptions() {
+        Optional<Snapshot> snapshot = read();
+        if (snapshot.isEmpty()) return false;
+
+        OptionStorage storage = config.getOptionStorage();
+        Set<String> locks = new HashSet<>();
+        storage.getConfigLockCat().getOptions().forEach(option -> locks.add(option.getName()));
+        storage.getResourceLockCat().getOptions().forEach(option -> locks.add(option.getName()));
+
+        snapshot.get().values().forEach((name, value) -> {
+            AbstractOption<?> option = storage.getOption(name);
+            if (option != null && !locks.contains(name)) option.setValueFromObject(value);
+        });
+        return true;
+    }
+
+    private static void writeValue(DataOutput out, @Nullable AbstractOption<?> option, String value) throws IOException {
+        try {
+            if (option instanceof BooleanOption) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean(Boolean.parseBoolean(value));
+                return;
+            } else if (option instanceof IntegerSliderOption) {
+                int parsed = Integer.parseInt(value);
+                out.writeByte(INTEGER);
+                out.writeInt(parsed);
+                return;
+            } else if (option instanceof DoubleSliderOption) {
+                double parsed = Double.parseDouble(value);
+                out.writeByte(DOUBLE);
+                out.writeDouble(parsed);
+                return;
+            }
+        } catch (NumberFormatException ignored) {
+            // Values are validated beforehand, only reached for options stored after the schema was compiled
+        }
+        out.writeByte(STRING);
+        out.writeUTF(value);
+    }
+
+    /**
+     * Returns the checksum line of the config file, only reading the header.
+     */
+    private String readChecksumLine() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(config.propertiesPath, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            reader.readLine();
+            String line = reader.readLine();
+            return line != null ? line : "";
+        }
+    }
+
+    /**
+     * Values read from a valid sidecar, identified by the modification time and size of the config file it matches.
+     */
+    public record Snapshot(String modVersion, Map<String, Object> values, long modified, long size) {
+
+        /**
+         * Returns {@code true} if the provided option values, as they would be written, are the ones in this sidecar.
+         */
+        public boolean matches(Map<String, String> options) {
+            if (!values.keySet().equals(options.keySet())) return false;
+
+            for (Map.Entry<String, String> entry : options.entrySet()) {
+                Object value = values.get(entry.getKey());
+                if (value instanceof Double number) {
+                    try {
+                        if (Double.compare(number, Double.parseDouble(entry.getValue())) != 0) return false;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                } else if (!String.valueOf(value).equals(entry.getValue())) return false;
+            }
+            return true;
+        }
+    }
+}
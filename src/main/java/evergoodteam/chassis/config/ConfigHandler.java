@@ -1,7 +1,12 @@
 package evergoodteam.chassis.config;
 
+import evergoodteam.chassis.config.networking.ConfigOverlay;
+import evergoodteam.chassis.config.option.AbstractOption;
+import evergoodteam.chassis.config.option.OptionStorage;
 import org.slf4j.Logger;
 
+import java.util.Map;
+
 import static evergoodteam.chassis.util.Reference.CMI;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -10,13 +15,22 @@ public class ConfigHandler {
     private static final Logger LOGGER = getLogger(CMI + "/C/Handler");
     private final ConfigBase config;
     private final ConfigSerializer serializer;
+    private final ConfigWriteQueue writeQueue;
 
     public ConfigHandler(ConfigBase config) {
         this.config = config;
         this.serializer = config.getWriter().getSerializer();
+        this.writeQueue = new ConfigWriteQueue(config);
     }
 
     public void setup() {
+        // A valid binary sidecar matches the file's size, modification time and checksum line, so the file can't be torn
+        if (config.getWriter().getBinaryCache().read().isEmpty() && !serializer.isWrittenIntact()) {
+            if (config.getWriter().restoreBackup())
+                LOGGER.warn("Configs \"{}\" were left incomplete by an interrupted write, restored from backup (the incomplete file was kept as .corrupt)", config.getIdentifier());
+            else LOGGER.error("Configs \"{}\" look incomplete and no valid backup was found, reading them as they are", config.getIdentifier());
+        }
+
         readAllOptions();  // Update stored options (which are CURRENTLY just initialized to default value) to the written values.
         if (!config.getLock().getValue() || versionUpdated()) { // Resets if lock is still off after read or versions are mismatched
             LOGGER.warn("Regenerating Configs \"{}\"", config.getIdentifier());
@@ -24,19 +38,35 @@ public class ConfigHandler {
         } else LOGGER.info("Configs \"{}\" already exist, skipping first generation", config.getIdentifier());
     }
 
+    /**
+     * Queues a write of the stored resource locks to the config file.
+     *
+     * @see #flush()
+     */
     public void writeResourceLocks() {
-        config.getWriter().updateInternalResourceLockFromStored();
         // If resource is unlocked and providers arent run, the resource stays unlocked => stored options (no options are stored this early) are written.
         //config.getWriter().overwriteWithStored();
-        config.getWriter().overwriteLocksWithStored();
+        writeQueue.queueResourceLocks();
     }
 
     /**
-     * Writes to the config file the stored user options
+     * Queues a write of the stored user options to the config file.
+     *
+     * @see #flush()
      */
     public void writeUserOptions() {
-        config.getWriter().updateInternalUserFromStored();
-        config.getWriter().overwriteWithStored();
+        writeQueue.queueUserOptions();
+    }
+
+    /**
+     * Writes any queued change to the config file, blocking until it's done.
+     */
+    public void flush() {
+        writeQueue.flush();
+    }
+
+    public ConfigWriteQueue getWriteQueue() {
+        return writeQueue;
     }
 
     /**
@@ -48,35 +78,107 @@ public class ConfigHandler {
         readUserOptions();
     }
 
+    /**
+     * Pending writes are flushed first, so that stored values are never replaced by outdated written ones.
+     */
     public void readLocks() {
+        writeQueue.flush();
+        if (config.getWriter().getBinaryCache().applyLocks()) return;
+
         config.getWriter().updateStoredConfigLockFromWritten();
         config.getWriter().updateStoredResourceLockFromWritten();
     }
 
+    /**
+     * Stored user options are only marked clean if they now match the config file, otherwise the next write replaces
+     * the repaired or missing values.
+     */
     public void readUserOptions() {
-        config.getWriter().updateStoredUserFromWritten();
+        writeQueue.flush();
+        ConfigBinaryCache binaryCache = config.getWriter().getBinaryCache();
+        boolean matches;
+        if (binaryCache.applyUserOptions()) {
+            // The sidecar only holds valid values, the ones it misses were left to their stored value
+            Map<String, Object> values = binaryCache.read().map(ConfigBinaryCache.Snapshot::values).orElse(Map.of());
+            matches = values.keySet().containsAll(serializer.getMappedStoredUserOptions().keySet());
+        } else matches = config.getWriter().updateStoredUserFromWritten();
+
+        // Options overlaid by a server keep its value, what was read becomes their local value
+        ConfigOverlay overlay = config.getNetworkHandler().getOverlay();
+        if (overlay.isActive()) overlay.reapply(serializer.getValidatedWrittenOptions());
+        if (matches) config.getOptionStorage().markClean(config.getOptionStorage().getVersion());
+    }
+
+    /**
+     * Assigns to the stored options the written values that differ from their current value, using {@link AbstractOption#setValueFromString}
+     * so that update callbacks are called. Skipped while writes are queued, since the file is about to be replaced with the stored values,
+     * and if the file is the one last written by the {@link ConfigWriter}. Options with unsaved changes keep their stored value.
+     *
+     * @see ConfigWatcher
+     */
+    public void reloadFromWritten() {
+        if (writeQueue.isPending() || config.getWriter().isLastWritten()) return;
+
+        Map<String, String> written = serializer.getValidatedWrittenOptions();
+        ConfigOverlay overlay = config.getNetworkHandler().getOverlay();
+        OptionStorage storage = config.getOptionStorage();
+        int changed = 0;
+        int unsaved = 0;
+        for (AbstractOption<?> option : storage.getOptions()) {
+            if (overlay.isOverlaid(option)) continue;
+
+            String value = written.get(option.getName());
+            if (value == null || value.equals(option.getValueAsString())) continue;
+
+            if (option.isDirty()) {
+                unsaved++;
+                continue;
+            }
+
+            try {
+                option.setValueFromString(value);
+                storage.markClean(option);
+                changed++;
+            } catch (RuntimeException e) {
+                LOGGER.error("Invalid value \"{}\" for option \"{}\" in configs \"{}\"", value, option.getName(), config.getIdentifier());
+            }
+        }
+        if (overlay.isActive()) overlay.reapply(written);
+        // Unsaved changes stay dirty, so that they are still written
+        if (unsaved == 0) storage.markClean(storage.getVersion());
+        else LOGGER.warn("Kept {} option(s) of configs \"{}\" with unsaved changes over the ones edited on disk", unsaved, config.getIdentifier());
+        if (changed == 0) return;
+
+        LOGGER.info("Reloaded {} option(s) of configs \"{}\" from disk", changed, config.getIdentifier());
     }
 
     /**
      * Returns true if the version written in the config file isn't the same as the mod's and strict versioning is enabled for this config.
      */
     public boolean versionUpdated() {
-        return config.isStrictVersioningEnabled() && !serializer.getWrittenModVersion().equals(serializer.getModVersion());
+        if (!config.isStrictVersioningEnabled()) return false;
+
+        String written = config.getWriter().getBinaryCache().read()
+                .map(ConfigBinaryCache.Snapshot::modVersion)
+                .orElseGet(serializer::getWrittenModVersion);
+        return !written.equals(serializer.getModVersion());
     }
 
     /**
-     * Returns true if any stored user option from {@link evergoodteam.chassis.config.option.OptionStorage OptionStorage} has a different value
-     * from the one written in the config file.
+     * Returns true if any stored user option from {@link evergoodteam.chassis.config.option.OptionStorage OptionStorage} was changed
+     * since the config file was last read or written. Constant time, the config file isn't accessed.
+     *
+     * @see evergoodteam.chassis.config.option.OptionStorage#isUserDirty()
      */
     public boolean userOptionDesync() {
-        return !serializer.getMappedWrittenUserOptions().equals(serializer.getMappedStoredUserOptions());
+        return config.getOptionStorage().isUserDirty();
     }
 
     /**
      * Returns true if any stored option from {@link evergoodteam.chassis.config.option.OptionStorage OptionStorage} has a different value
-     * from the one written in the config file.
+     * from the one written in the config file. Compares the cached content hashes of both.
      */
     public boolean optionDesync() {
-        return !serializer.getMappedWrittenOptions().equals(serializer.getMappedStoredOptions());
+        return serializer.getWrittenContentHash().map(hash -> hash != serializer.getStoredContentHash()).orElse(true);
     }
 }
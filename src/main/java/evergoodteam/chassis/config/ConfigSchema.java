@@ -0,0 +1,216 @@
+package evergoodteam.chassis.config;
+
+import com.google.common.collect.ImmutableSet;
+import evergoodteam.chassis.config.option.*;
+import evergoodteam.chassis.util.gui.ColorUtils;
+import org.slf4j.Logger;
+
+import java.util.*;
+
+import static evergoodteam.chassis.util.Reference.CMI;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Validation rules for the written values of a {@link ConfigBase}, compiled from its stored options. <p>
+ * Written values are checked in a single pass: out of bounds numbers are clamped, malformed values are replaced with the
+ * option's default, and every error found is reported at once. Values are validated before being assigned to the stored
+ * options, so that a bad line never throws nor resets the config.
+ */
+public class ConfigSchema {
+
+    private static final Logger LOGGER = getLogger(CMI + "/C/Schema");
+    private final ConfigBase config;
+    private volatile CompiledRules compiled;
+    private volatile Validated validated;
+
+    public ConfigSchema(ConfigBase config) {
+        this.config = config;
+    }
+
+    /**
+     * Returns a copy of the provided written values where every invalid value has been repaired, logging what was changed.
+     * The result for the last validated map is cached, so the same parsed document is validated and reported only once.
+     */
+    public Map<String, String> validate(Map<String, String> written) {
+        Map<String, Rule> rules = getRules();
+        Validated cached = this.validated;
+        if (cached != null && cached.written() == written && cached.rules() == rules) return cached.values();
+
+        Map<String, String> values = new LinkedHashMap<>(written);
+        List<String> errors = new ArrayList<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            Rule rule = rules.get(entry.getKey());
+            if (rule == null) continue;
+
+            String repaired = rule.repair(entry.getValue());
+            if (repaired.equals(entry.getValue())) continue;
+
+            errors.add("%s = %s, expected %s, using %s".formatted(entry.getKey(), entry.getValue(), rule.expected(), repaired));
+            entry.setValue(repaired);
+        }
+
+        if (!errors.isEmpty())
+            LOGGER.warn("Repaired {} invalid value(s) in configs \"{}\":\n  {}", errors.size(), config.getIdentifier(), String.join("\n  ", errors));
+
+        values = Collections.unmodifiableMap(values);
+        this.validated = new Validated(written, rules, values);
+        return values;
+    }
+
+    /**
+     * Returns {@code true} if the provided value is valid for the provided option as is, i.e. it wouldn't be repaired.
+     */
+    public boolean accepts(AbstractOption<?> option, String value) {
+        Rule rule = getRules().get(option.getName());
+        return rule == null || rule.repair(value).equals(value);
+    }
+
+    /**
+     * Returns the rules of the stored options, compiled again only after options are stored or their bounds change.
+     */
+    private Map<String, Rule> getRules() {
+        OptionStorage storage = config.getOptionStorage();
+        // Read before compiling, so that a change made meanwhile compiles the rules again on the next call
+        long version = storage.getDefinitionVersion();
+        CompiledRules compiled = this.compiled;
+        if (compiled != null && compiled.version() == version) return compiled.rules();
+
+        List<AbstractOption<?>> options = storage.getOptions();
+        Map<String, Rule> rules = new HashMap<>(options.size() * 2);
+        for (AbstractOption<?> option : options) rules.put(option.getName(), compile(option));
+        this.compiled = new CompiledRules(version, rules);
+        return rules;
+    }
+
+    private Rule compile(AbstractOption<?> option) {
+        // A malformed config lock still means the file was generated, falling back to false would reset it
+        if (option == config.getLock()) return new BooleanRule(true);
+        if (option instanceof BooleanOption bool) return new BooleanRule(bool.getDefaultValue());
+        if (option instanceof IntegerSliderOption integer) return new IntegerRule(integer.getMin(), integer.getMax(), integer.getDefaultValue());
+        if (option instanceof DoubleSliderOption dbl) return new DoubleRule(dbl.getMin(), dbl.getMax(), dbl.getDefaultValue());
+        if (option instanceof ColorOption color) return new ColorRule(color.getDefaultValue());
+        if (option instanceof ParsedOption<?> parsed) return new ParsedRule(parsed);
+        if (option instanceof StringSetOption string) return new SetRule(string.getValues(), string.getDefaultValue());
+        return new AnyRule();
+    }
+
+    private record CompiledRules(long version, Map<String, Rule> rules) {
+    }
+
+    private interface Rule {
+
+        /**
+         * Returns the provided value if valid, otherwise its repaired version.
+         */
+        String repair(String value);
+
+        String expected();
+    }
+
+    private record AnyRule() implements Rule {
+
+        @Override
+        public String repair(String value) {
+            return value;
+        }
+
+        @Override
+        public String expected() {
+            return "any value";
+        }
+    }
+
+    private record BooleanRule(boolean defaultValue) implements Rule {
+
+        @Override
+        public String repair(String value) {
+            return "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value) ? value : String.valueOf(defaultValue);
+        }
+
+        @Override
+        public String expected() {
+            return "true or false";
+        }
+    }
+
+    private record IntegerRule(int min, int max, int defaultValue) implements Rule {
+
+        @Override
+        public String repair(String value) {
+            int parsed;
+            try {
+                parsed = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return String.valueOf(defaultValue);
+            }
+            return parsed < min ? String.valueOf(min) : parsed > max ? String.valueOf(max) : value;
+        }
+
+        @Override
+        public String expected() {
+            return "an integer in [%s, %s]".formatted(min, max);
+        }
+    }
+
+    private record DoubleRule(double min, double max, double defaultValue) implements Rule {
+
+        @Override
+        public String repair(String value) {
+            double parsed;
+            try {
+                parsed = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return String.valueOf(defaultValue);
+            }
+            if (Double.isNaN(parsed)) return String.valueOf(defaultValue);
+            return parsed < min ? String.valueOf(min) : parsed > max ? String.valueOf(max) : value;
+        }
+
+        @Override
+        public String expected() {
+            return "a number in [%s, %s]".formatted(min, max);
+        }
+    }
+
+    private record ColorRule(String defaultValue) implements Rule {
+
+        @Override
+        public String repair(String value) {
+            return ColorUtils.Hex.isARGBHex(value) || ColorUtils.Hex.isRGBHex(value) ? value : defaultValue;
+        }
+
+        @Override
+        public String expected() {
+            return "an RGB or ARGB hex color";
+        }
+    }
+
+    private record SetRule(ImmutableSet<String> bounds, String defaultValue) implements Rule {
+
+        @Override
+        public String repair(String value) {
+            return bounds.isEmpty() || bounds.contains(value) ? value : defaultValue;
+        }
+
+        @Override
+        public String expected() {
+            return "one of " + bounds;
+        }
+    }
+
+    private record ParsedRule(ParsedOption<?> option) implements Rule {
+
+        @Override
+        public String repair(String value) {
+            return option.isValid(value) ? value : option.getDefaultValueAsString();
+        }
+
+        @Override
+        public String expected() {
+            return option instanceof MapOption<?, ?> ? "comma separated key = value entries" : "comma separated values";
+        }
+    }
+
+    private record Validated(Map<String, String> written, Map<String, Rule> rules, Map<String, String> values) {
+    }
+}
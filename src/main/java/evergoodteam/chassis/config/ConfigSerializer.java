@@ -1,6 +1,9 @@
 package evergoodteam.chassis.config;
 
 import com.google.common.collect.ImmutableCollection;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import evergoodteam.chassis.config.option.AbstractOption;
 import evergoodteam.chassis.config.option.CategoryOption;
 import evergoodteam.chassis.util.CollectionUtils;
@@ -9,11 +12,19 @@ import evergoodteam.chassis.util.StringUtils;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.api.FabricLoader;
 import net.fabricmc.loader.api.ModContainer;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 import static evergoodteam.chassis.util.Reference.CMI;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -21,14 +32,21 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class ConfigSerializer {
 
     private static final Logger LOGGER = getLogger(CMI + "/C/Serializer");
+    public static final String CHECKSUM_LABEL = "Checksum: ";
+    private static final Pattern LINE_COUNT = Pattern.compile(", (\\d{1,9}) lines");
     private final ConfigBase config;
+    private static final HashFunction CONTENT_HASH = Hashing.murmur3_128();
+    private volatile WrittenDocument document;
+    private volatile StoredHashes storedHashes;
+    private volatile List<AbstractOption<?>> sortedOptions;
+    private final ThreadLocal<Map<AbstractOption<?>, String>> pinnedValues = new ThreadLocal<>();
 
     public ConfigSerializer(ConfigBase config) {
         this.config = config;
     }
 
     public String title() {
-        return "# %s (%s) Configs".formatted(StringUtils.capitalize(config.getIdentifier().toString()), getModVersion());
+        return config.getFormat().comment("%s (%s) Configs".formatted(StringUtils.capitalize(config.getIdentifier().toString()), getModVersion()));
     }
 
     public String getModVersion() {
@@ -38,7 +56,56 @@ public class ConfigSerializer {
     }
 
     public String lastModified() {
-        return "# Last Modified: %s".formatted(new Date());
+        return config.getFormat().comment("Last Modified: %s".formatted(new Date()));
+    }
+
+    /**
+     * Returns the checksum line for the provided lines, which shouldn't include a checksum line themselves.
+     * Every line is covered, so any change made since the file was written, including a hand edit, changes the checksum.
+     * The amount of lines is written as well, to tell lines lost to an interrupted write from edited ones.
+     */
+    public String checksum(List<String> lines) {
+        CRC32 crc = new CRC32();
+        for (String line : lines) {
+            crc.update(line.getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        return config.getFormat().comment(CHECKSUM_LABEL + "%08x, %d lines".formatted(crc.getValue(), lines.size()));
+    }
+
+    public boolean isChecksumLine(String line) {
+        return line.startsWith(config.getFormat().comment(CHECKSUM_LABEL));
+    }
+
+    /**
+     * Returns {@code false} if the provided config lines were cut short by an interrupted write, detected through their
+     * checksum line. Lines that don't match their checksum but still parse and have the written amount of lines were edited
+     * by hand, and are left as they are. Files written before checksums were introduced are considered intact as long as
+     * they have a title.
+     */
+    public boolean isIntact(List<String> lines) {
+        if (lines.isEmpty() || lines.get(0).isEmpty()) return false;
+        if (lines.size() < 3 || !isChecksumLine(lines.get(2))) return lines.get(0).startsWith(config.getFormat().comment(""));
+
+        List<String> body = new ArrayList<>(lines);
+        String written = body.remove(2);
+        if (written.equals(checksum(body))) return true;
+
+        Matcher count = LINE_COUNT.matcher(written);
+        if (!count.find() || Integer.parseInt(count.group(1)) != body.size()) return false;
+
+        List<String> errors = new ArrayList<>();
+        config.getFormat().parse(String.join("\n", body), errors);
+        return errors.isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if the config file doesn't exist or is intact.
+     *
+     * @see #isIntact(List)
+     */
+    public boolean isWrittenIntact() {
+        return getWrittenContents().map(this::isIntact).orElse(true);
     }
 
     /**
@@ -60,19 +127,26 @@ public class ConfigSerializer {
      * Only lines, no newLines included!
      */
     public List<String> category(CategoryOption categoryOption) {
+        return category(categoryOption, "#");
+    }
+
+    /**
+     * Only lines, no newLines included! Uses the provided comment prefix, e.g. "#" or "//".
+     */
+    public List<String> category(CategoryOption categoryOption, String commentPrefix) {
         List<String> result = new ArrayList<>();
         if (categoryOption.isCommentHidden()) return result;
 
         result.add("");
 
-        String line = "#".repeat(81);
-        String separator = "#" + "-".repeat(79) + "#";
+        String line = commentPrefix.repeat(81 / commentPrefix.length());
+        String separator = commentPrefix + "-".repeat(81 - 2 * commentPrefix.length()) + commentPrefix;
 
         result.add(line);
-        result.add("# %s".formatted(categoryOption.getName()));
-        if (!comment(categoryOption).isEmpty()) {
+        result.add("%s %s".formatted(commentPrefix, categoryOption.getName()));
+        if (!comment(categoryOption, commentPrefix).isEmpty()) {
             result.add(separator);
-            result.addAll(comment(categoryOption));
+            result.addAll(comment(categoryOption, commentPrefix));
         }
         result.add(line);
 
@@ -92,10 +166,17 @@ public class ConfigSerializer {
      * Only lines, no newLines included! Wraps any over-sized lines.
      */
     public List<String> comment(AbstractOption<?> option) {
+        return comment(option, "#");
+    }
+
+    /**
+     * Only lines, no newLines included! Wraps any over-sized lines, using the provided comment prefix.
+     */
+    public List<String> comment(AbstractOption<?> option, String commentPrefix) {
         if (option.getComment().equals("") || option.isCommentHidden()) return List.of();
-        if (option.isDefaultCommentHidden()) return wrappedComment(option);
+        if (option.isDefaultCommentHidden()) return wrappedComment(option, commentPrefix);
 
-        List<String> result = wrappedComment(option);
+        List<String> result = wrappedComment(option, commentPrefix);
         result.set(result.size() - 1, "%s %s".formatted(result.get(result.size() - 1), defaultValue(option)));
         return result;
     }
@@ -104,15 +185,19 @@ public class ConfigSerializer {
      * Only lines, no newLines included! Wraps any over-sized lines.
      */
     public List<String> wrappedComment(AbstractOption<?> option) {
-        return StringUtils.wrapString(option.getComment(), "# ", 81);
+        return wrappedComment(option, "#");
+    }
+
+    public List<String> wrappedComment(AbstractOption<?> option, String commentPrefix) {
+        return StringUtils.wrapString(option.getComment(), commentPrefix + " ", 81);
     }
 
     public String defaultValue(AbstractOption<?> option) {
         if (option instanceof AbstractOption.Interval<?> interval) {
-            return "[%s, %s]".formatted(defaultValue(option.getDefaultValue()), range(interval.getMin(), interval.getMax()));
+            return "[%s, %s]".formatted(defaultValue(option.getDefaultValueAsString()), range(interval.getMin(), interval.getMax()));
         } else if (option.getValues().size() > 1)
-            return "[%s, %s]".formatted(defaultValue(option.getDefaultValue()), acceptedValues(option.getValues()));
-        return "[%s]".formatted(defaultValue(option.getDefaultValue()));
+            return "[%s, %s]".formatted(defaultValue(option.getDefaultValueAsString()), acceptedValues(option.getValues()));
+        return "[%s]".formatted(defaultValue(option.getDefaultValueAsString()));
     }
 
     public <T> String range(T min, T max) {
@@ -128,7 +213,27 @@ public class ConfigSerializer {
     }
 
     public String property(AbstractOption<?> option) {
-        return property(option.getName(), option.getValue());
+        return property(option.getName(), storedValue(option));
+    }
+
+    /**
+     * Returns the value of the provided option to be written: for options overlaid by a server, the local value is kept.
+     *
+     * @see evergoodteam.chassis.config.networking.ConfigOverlay
+     */
+    public String storedValue(AbstractOption<?> option) {
+        Map<AbstractOption<?>, String> pinned = pinnedValues.get();
+        String value = pinned == null ? null : pinned.get(option);
+        return value != null ? value : config.getNetworkHandler().getOverlay().getLocalValue(option);
+    }
+
+    /**
+     * Makes {@link #storedValue} return the provided values on the calling thread, until called again with null. Used by the
+     * {@link ConfigWriter} to write values captured on another thread.
+     */
+    void pinStoredValues(@Nullable Map<AbstractOption<?>, String> values) {
+        if (values == null) pinnedValues.remove();
+        else pinnedValues.set(values);
     }
 
     public <T> String property(String name, T value) {
@@ -143,27 +248,32 @@ public class ConfigSerializer {
     }
 
     public Map<String, String> getMappedWrittenConfigLock() {
-        return CollectionUtils.matchMapKeys(getMappedWrittenOptions(), getMappedStoredConfigLock());
+        return CollectionUtils.matchMapKeys(getValidatedWrittenOptions(), getMappedStoredConfigLock());
     }
 
     public Map<String, String> getMappedWrittenResourceLock() {
-        return CollectionUtils.matchMapKeys(getMappedWrittenOptions(), getMappedStoredResourceLock());
+        return CollectionUtils.matchMapKeys(getValidatedWrittenOptions(), getMappedStoredResourceLock());
     }
 
     public Map<String, String> getMappedWrittenUserOptions() {
-        return CollectionUtils.matchMapKeys(getMappedWrittenOptions(), getMappedStoredUserOptions());
+        return CollectionUtils.matchMapKeys(getValidatedWrittenOptions(), getMappedStoredUserOptions());
         /*return getMappedWrittenOptions().keySet().stream().filter(toMatch::containsKey)
                 .collect(Collectors.toMap(key -> key, key -> getMappedWrittenOptions().get(key), (a, b) -> b));*/
     }
 
     /**
      * If the config file exists, returns a map where written options' names are used as keys for their written values. <p>
-     * Otherwise, returns an empty map.
+     * Otherwise, returns an empty map. The returned map is shared with the parsed document cache and can't be modified.
      */
     public Map<String, String> getMappedWrittenOptions() {
-        Map<String, String> result = new HashMap<>();
-        getWrittenOptions().forEach(string -> result.put(string.split(" = ")[0], string.split(" = ")[1]));
-        return result;
+        return getWrittenDocument().map(WrittenDocument::options).orElse(Map.of());
+    }
+
+    /**
+     * Returns {@link #getMappedWrittenOptions()} with every invalid value repaired by the config's {@link ConfigSchema}.
+     */
+    public Map<String, String> getValidatedWrittenOptions() {
+        return config.getSchema().validate(getMappedWrittenOptions());
     }
 
     /**
@@ -171,11 +281,8 @@ public class ConfigSerializer {
      * empty lines and ones that start with "#". Otherwise, returns an empty list.
      */
     public List<String> getWrittenOptions() {
-        List<String> result = new ArrayList<>();
-        Optional<List<String>> contents = getWrittenContents();
-        contents.ifPresent(strings -> strings.stream().filter(string -> !string.equals("") && string.charAt(0) != '#')
-                .forEach(result::add));
-        return result;
+        return getWrittenDocument().map(WrittenDocument::options).orElse(Map.of()).entrySet().stream()
+                .map(entry -> property(entry.getKey(), entry.getValue())).collect(Collectors.toList());
     }
 
     // TODO: can be optimized, haven't checked with multiple resource locks
@@ -207,53 +314,188 @@ public class ConfigSerializer {
     }
 
     public Optional<List<String>> getWrittenContentsWithoutHeader() {
-        if (Files.exists(config.propertiesPath)) {
-            List<String> lines = FileUtils.toList(config.propertiesPath);
-            return Optional.of(lines.subList(3, lines.size()));
-        }
-        //LOGGER.error("Config file doesn't exist, can't return a content list.");
-        return Optional.empty();
+        return getWrittenContents().map(lines -> lines.subList(Math.min(4, lines.size()), lines.size()));
     }
 
+    /**
+     * If the config file exists, returns its lines. These are cached and only re-read once the file's modification time or size change,
+     * or after {@link #invalidateWrittenContents()} is called.
+     */
     public Optional<List<String>> getWrittenContents() {
-        if (Files.exists(config.propertiesPath)) return Optional.of(FileUtils.toList(config.propertiesPath));
-        //LOGGER.error("Config file doesn't exist, can't return a content list.");
-        return Optional.empty();
+        return getWrittenDocument().map(WrittenDocument::lines);
+    }
+
+    /**
+     * Drops the cached parsed contents of the config file, forcing the next read to go to disk.
+     * Called by {@link ConfigWriter.ConfigCharSink} whenever the file is written.
+     */
+    public void invalidateWrittenContents() {
+        this.document = null;
+    }
+
+    private Optional<WrittenDocument> getWrittenDocument() {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(config.propertiesPath, BasicFileAttributes.class);
+        } catch (IOException e) {
+            //LOGGER.error("Config file doesn't exist, can't return a content list.");
+            this.document = null;
+            return Optional.empty();
+        }
+
+        long modified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        WrittenDocument cached = this.document;
+        if (cached == null || cached.modified() != modified || cached.size() != size) {
+            cached = WrittenDocument.parse(config, modified, size);
+            this.document = cached;
+        }
+        return Optional.of(cached);
     }
 
     // -------------------------------------------------------------------------------
 
+    /**
+     * Returns the stored server options, excluding locks, sorted by name.
+     */
+    public List<AbstractOption<?>> getStoredServerUserOptions() {
+        Set<AbstractOption<?>> locks = getStoredLocks();
+        return getSortedStoredOptions().stream()
+                .filter(option -> option.getEnvType().equals(EnvType.SERVER) && !locks.contains(option))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a 64-bit hash of the stored server options' names and values, excluding locks.
+     * Cached until an option changes.
+     *
+     * @see #getStoredContentHash()
+     */
+    public long getStoredServerUserOptionsHash() {
+        return getStoredHashes().server();
+    }
+
+    /**
+     * Returns a 64-bit hash of every stored option's name and the value it would be written with.
+     * The hash is cached until an option changes. Options are fed in name order as length-prefixed UTF-8 strings, so the
+     * hash doesn't depend on registration or map iteration order and matches {@link #getWrittenContentHash()} when the
+     * written values are the same.
+     */
+    public long getStoredContentHash() {
+        return getStoredHashes().content();
+    }
+
+    /**
+     * If the config file exists, returns the hash of the written options, computed the same way as {@link #getStoredContentHash()}.
+     */
+    public Optional<Long> getWrittenContentHash() {
+        return getWrittenDocument().map(WrittenDocument::hash);
+    }
+
+    private StoredHashes getStoredHashes() {
+        long version = config.getOptionStorage().getVersion();
+        StoredHashes cached = this.storedHashes;
+        // Overlaid options are written with their local value, which changes without bumping the version
+        boolean overlaid = config.getNetworkHandler().getOverlay().isActive();
+        if (cached != null && cached.version() == version && !overlaid) return cached;
+
+        Set<AbstractOption<?>> locks = getStoredLocks();
+        Hasher content = CONTENT_HASH.newHasher();
+        Hasher server = CONTENT_HASH.newHasher();
+        for (AbstractOption<?> option : getSortedStoredOptions()) {
+            putProperty(content, option.getName(), storedValue(option));
+            if (option.getEnvType().equals(EnvType.SERVER) && !locks.contains(option))
+                putProperty(server, option.getName(), option.getValueAsString());
+        }
+
+        cached = new StoredHashes(version, content.hash().asLong(), server.hash().asLong());
+        // Pinned values can be older than the version
+        if (pinnedValues.get() == null) this.storedHashes = cached;
+        return cached;
+    }
+
+    private List<AbstractOption<?>> getSortedStoredOptions() {
+        List<AbstractOption<?>> options = config.getOptionStorage().getOptions();
+        List<AbstractOption<?>> sorted = this.sortedOptions;
+
+        // Options are only ever added, so the size is enough to tell if the cache is outdated
+        if (sorted == null || sorted.size() != options.size()) {
+            sorted = options.stream().sorted(Comparator.comparing(AbstractOption::getName)).toList();
+            this.sortedOptions = sorted;
+        }
+        return sorted;
+    }
+
+    private Set<AbstractOption<?>> getStoredLocks() {
+        Set<AbstractOption<?>> locks = new HashSet<>(config.getOptionStorage().getConfigLockCat().getOptions());
+        locks.addAll(config.getOptionStorage().getResourceLockCat().getOptions());
+        return locks;
+    }
+
+    private static void putProperty(Hasher hasher, String name, String value) {
+        hasher.putInt(name.length()).putString(name, StandardCharsets.UTF_8)
+                .putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @deprecated compares through a {@link HashMap#toString()}, use {@link #getStoredServerUserOptionsHash()} instead
+     */
+    @Deprecated
     public Map<String, String> getMappedStoredServerUserOptions() {
         Map<String, String> cfg = getMappedStoredConfigLock();
         Map<String, String> resource = getMappedStoredResourceLock();
 
         // Filter out locks too, even though they're client sided
         return config.getOptionStorage().getOptions().stream().filter(option -> option.getEnvType().equals(EnvType.SERVER) && !cfg.containsKey(option.getName()) && !resource.containsKey(option.getName()))
-                .collect(Collectors.toMap(AbstractOption::getName, option -> String.valueOf(option.getValue()), (a, b) -> b));
+                .collect(Collectors.toMap(AbstractOption::getName, this::storedValue, (a, b) -> b));
     }
 
     public Map<String, String> getMappedStoredUserOptions() {
         //log.error("SCRAPED STORED USER");
         Map<String, String> cfg = getMappedStoredConfigLock();
         Map<String, String> resource = getMappedStoredResourceLock();
-        return getMappedStoredOptions().keySet().stream().filter(key -> !cfg.containsKey(key) && !resource.containsKey(key))
-                .collect(Collectors.toMap(key -> key, key -> getMappedStoredOptions().get(key), (a, b) -> b));
+        Map<String, String> stored = getMappedStoredOptions();
+        return stored.keySet().stream().filter(key -> !cfg.containsKey(key) && !resource.containsKey(key))
+                .collect(Collectors.toMap(key -> key, stored::get, (a, b) -> b));
     }
 
     public Map<String, String> getMappedStoredConfigLock() {
         //log.warn("SCRAPED STORED CONFIG LOCK");
         return config.getOptionStorage().getConfigLockCat().getOptions().stream()
-                .collect(Collectors.toMap(AbstractOption::getName, option -> String.valueOf(option.getValue()), (a, b) -> b));
+                .collect(Collectors.toMap(AbstractOption::getName, this::storedValue, (a, b) -> b));
     }
 
     public Map<String, String> getMappedStoredResourceLock() {
         //log.warn("SCRAPED STORED RESOURCE LOCK");
         return config.getOptionStorage().getResourceLockCat().getOptions().stream()
-                .collect(Collectors.toMap(AbstractOption::getName, option -> String.valueOf(option.getValue()), (a, b) -> b));
+                .collect(Collectors.toMap(AbstractOption::getName, this::storedValue, (a, b) -> b));
     }
 
     public Map<String, String> getMappedStoredOptions() {
         return config.getOptionStorage().getOptions().stream()
-                .collect(Collectors.toMap(AbstractOption::getName, option -> String.valueOf(option.getValue()), (a, b) -> b));
+                .collect(Collectors.toMap(AbstractOption::getName, this::storedValue, (a, b) -> b));
+    }
+
+    private record StoredHashes(long version, long content, long server) {
+    }
+
+    /**
+     * Immutable parsed view of the config file, identified by the modification time and size it was read with.
+     */
+    private record WrittenDocument(List<String> lines, Map<String, String> options, long hash, long modified, long size) {
+
+        static WrittenDocument parse(ConfigBase config, long modified, long size) {
+            List<String> lines = FileUtils.toList(config.propertiesPath);
+            List<String> errors = new ArrayList<>();
+            Map<String, String> options = config.getFormat().parse(String.join("\n", lines), errors);
+            if (!errors.isEmpty())
+                LOGGER.warn("Found {} syntax error(s) in configs \"{}\":\n  {}", errors.size(), config.getIdentifier(), String.join("\n  ", errors));
+
+            Hasher hasher = CONTENT_HASH.newHasher();
+            options.keySet().stream().sorted().forEach(name -> putProperty(hasher, name, options.get(name)));
+
+            return new WrittenDocument(Collections.unmodifiableList(lines), Collections.unmodifiableMap(options), hasher.hash().asLong(), modified, size);
+        }
     }
-}
\ No newline at end of file
+}
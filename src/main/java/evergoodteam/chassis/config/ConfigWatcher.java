@@ -0,0 +1,128 @@
+package evergoodteam.chassis.config;
+
+import evergoodteam.chassis.util.handlers.RegistryHandler;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static evergoodteam.chassis.util.Reference.CMI;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Watches the directories of every registered {@link ConfigBase} on a single background thread and hot-reloads config files
+ * edited on disk. Bursts of events for the same file are debounced, then only the options whose written value changed are
+ * updated, through {@link ConfigHandler#reloadFromWritten()}. Events caused by Chassis' own writes are ignored there.
+ */
+public class ConfigWatcher {
+
+    private static final Logger LOGGER = getLogger(CMI + "/C/Watcher");
+    private static final long DEBOUNCE_MS = 300;
+    private static final Map<Path, List<ConfigBase>> WATCHED = new ConcurrentHashMap<>();
+    private static WatchService watchService;
+    private static volatile Executor executor;
+
+    /**
+     * Starts the watcher thread, if not running already, and watches every config registered so far.
+     */
+    public static synchronized void start() {
+        if (watchService != null) return;
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            LOGGER.error("Unable to start the config watcher, configs won't be hot-reloaded", e);
+            return;
+        }
+
+        Thread thread = new Thread(ConfigWatcher::run, "Chassis Config Watcher");
+        thread.setDaemon(true);
+        thread.start();
+
+        RegistryHandler.getConfigurations().values().forEach(ConfigWatcher::watch);
+    }
+
+    /**
+     * Sets the executor on which reloads are applied, e.g. the client or server thread. Edits seen before an executor is set
+     * are held back and reloaded once it is.
+     */
+    public static void setExecutor(Executor executor) {
+        ConfigWatcher.executor = executor;
+    }
+
+    /**
+     * Watches the directory of the provided config. Does nothing if the watcher hasn't been started.
+     */
+    public static synchronized void watch(ConfigBase config) {
+        if (watchService == null) return;
+
+        List<ConfigBase> configs = WATCHED.computeIfAbsent(config.dirPath, path -> new CopyOnWriteArrayList<>());
+        if (configs.contains(config)) return;
+
+        if (configs.isEmpty()) {
+            try {
+                config.dirPath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException e) {
+                LOGGER.error("Unable to watch the config directory {}", config.dirPath, e);
+                return;
+            }
+        }
+        configs.add(config);
+    }
+
+    private static void run() {
+        Map<Path, Long> pending = new HashMap<>();
+
+        try {
+            while (true) {
+                WatchKey key = pending.isEmpty() ? watchService.take() : watchService.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+
+                if (key != null) {
+                    Path dir = (Path) key.watchable();
+                    long now = System.currentTimeMillis();
+
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                            WATCHED.getOrDefault(dir, List.of()).forEach(config -> pending.put(config.propertiesPath, now));
+                        else pending.put(dir.resolve((Path) event.context()), now);
+                    }
+                    key.reset();
+                }
+
+                // Reloading on this thread would race with the game reading the options
+                if (executor == null) continue;
+
+                long now = System.currentTimeMillis();
+                Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Path, Long> entry = iterator.next();
+                    if (now - entry.getValue() < DEBOUNCE_MS) continue;
+
+                    reload(entry.getKey());
+                    iterator.remove();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.debug("Config watcher stopped");
+        }
+    }
+
+    private static void reload(Path file) {
+        for (ConfigBase config : WATCHED.getOrDefault(file.getParent(), List.of())) {
+            if (!config.propertiesPath.equals(file)) continue;
+
+            executor.execute(() -> {
+                try {
+                    config.getHandler().reloadFromWritten();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Unable to reload configs \"{}\"", config.getIdentifier(), e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package evergoodteam.chassis.config;
+
+import evergoodteam.chassis.util.handlers.RegistryHandler;
+import org.slf4j.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static evergoodteam.chassis.util.Reference.CMI;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Write-behind queue for a {@link ConfigBase}: requested writes are coalesced for {@link #COALESCE_WINDOW_MS} and then
+ * written to the config file in a single replace on a shared background thread. <p>
+ * The queue's lock is only held to take the pending flags and the values to write, the file is written outside of it,
+ * so queuing a write never waits for the disk.
+ */
+public class ConfigWriteQueue {
+
+    private static final Logger LOGGER = getLogger(CMI + "/C/Queue");
+    private static final long COALESCE_WINDOW_MS = 250;
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Chassis Config Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ConfigBase config;
+    private final Object lock = new Object();
+    private boolean resourceLocksPending = false;
+    private boolean userOptionsPending = false;
+    private ScheduledFuture<?> scheduled;
+
+    public ConfigWriteQueue(ConfigBase config) {
+        this.config = config;
+    }
+
+    /**
+     * Flushes the pending writes of every registered {@link ConfigBase}, blocking until they're on disk.
+     */
+    public static void flushAll() {
+        RegistryHandler.getConfigurations().values().forEach(config -> config.getHandler().flush());
+    }
+
+    public void queueResourceLocks() {
+        synchronized (lock) {
+            resourceLocksPending = true;
+            schedule();
+        }
+    }
+
+    public void queueUserOptions() {
+        synchronized (lock) {
+            userOptionsPending = true;
+            schedule();
+        }
+    }
+
+    public boolean isPending() {
+        synchronized (lock) {
+            return resourceLocksPending || userOptionsPending;
+        }
+    }
+
+    /**
+     * Writes any pending change on the calling thread, returning once the config file has been replaced.
+     */
+    public void flush() {
+        ConfigWriter writer = config.getWriter();
+        boolean userOptions;
+        ConfigWriter.StoredValues values;
+        synchronized (lock) {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+            if (!resourceLocksPending && !userOptionsPending) values = null;
+            else values = writer.captureStoredValues();
+
+            // A full write already includes the stored locks
+            userOptions = userOptionsPending;
+            resourceLocksPending = false;
+            userOptionsPending = false;
+        }
+
+        // Also waits for a write taken by another thread, so that the file is up to date once this returns
+        synchronized (writer) {
+            if (values == null) return;
+            try {
+                writer.write(values, userOptions);
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to write the queued changes for \"{}\"", config.getIdentifier(), e);
+            }
+        }
+    }
+
+    private void schedule() {
+        if (scheduled == null) scheduled = EXECUTOR.schedule(this::flush, COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+    }
+}
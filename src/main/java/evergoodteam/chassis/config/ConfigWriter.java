@@ -1,20 +1,26 @@
 package evergoodteam.chassis.config;
 
 import com.google.common.io.CharSink;
+import evergoodteam.chassis.config.format.PropertiesFormat;
+import evergoodteam.chassis.config.option.AbstractOption;
 import evergoodteam.chassis.util.DirectoryUtils;
 import evergoodteam.chassis.util.FileUtils;
-import org.jetbrains.annotations.ApiStatus;
 import org.slf4j.Logger;
 
+import java.io.BufferedWriter;
+import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
 
 import static evergoodteam.chassis.util.Reference.CMI;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -25,35 +31,42 @@ public class ConfigWriter {
     private final ConfigBase config;
     private final ConfigSerializer serializer;
     private final ConfigCharSink charSink;
-    private List<String> header = new ArrayList<>();
-    private List<String> configLock = new ArrayList<>();
-    private List<String> resourceLock = new ArrayList<>();
-    private List<String> user = new ArrayList<>();
+    private final ConfigBinaryCache binaryCache;
+    private long writtenVersion = -1; // Guarded by this
+    private FileStamp lastWritten; // Guarded by this
 
     public ConfigWriter(ConfigBase config) {
         this.config = config;
         this.serializer = new ConfigSerializer(config);
         this.charSink = new ConfigCharSink(config);
+        this.binaryCache = new ConfigBinaryCache(config);
     }
 
     public ConfigSerializer getSerializer() {
         return this.serializer;
     }
 
+    public ConfigBinaryCache getBinaryCache() {
+        return this.binaryCache;
+    }
+
     /**
      * Creates the parent dirs and the config file with the required default variables and enabled the config file lock.
+     * The previous file, if any, is only replaced once the new one has been fully written.
      */
-    public void createBase() {
-        FileUtils.delete(config.propertiesPath);
+    public synchronized void createBase() {
         DirectoryUtils.create(config.dirPath);
-        FileUtils.createFile(config.propertiesPath);
 
         config.getLock().setValue(true);
+        long version = config.getOptionStorage().getVersion();
 
-        updateInternalConfigLockFromStored();
-        updateInternalResourceLockFromStored();
-        updateInternalUserFromStored();
-        overwriteWithStored();
+        try {
+            overwriteFile(getAllLines(), serializer.getMappedStoredOptions());
+            writtenVersion = Math.max(writtenVersion, version);
+            config.getOptionStorage().markClean(version);
+        } catch (IOException e) {
+            LOGGER.error("There was an error writing to the config file: %s".formatted(e));
+        }
 
         LOGGER.info("Generated and locked Configs for \"{}\"", config.getIdentifier());
     }
@@ -68,10 +81,6 @@ public class ConfigWriter {
 
         config.getOptionStorage().getConfigLockCat().getOptions()
                 .forEach(option -> option.setValueFromString(cfg.get(option.getName())));
-
-        //log.error("UPDATING WRITER CONFIG WITH STORED AFTER ASSIGNING");
-
-        updateInternalConfigLockFromStored();
     }
 
     public void updateStoredResourceLockFromWritten() {
@@ -80,107 +89,227 @@ public class ConfigWriter {
 
         config.getOptionStorage().getResourceLockCat().getOptions()
                 .forEach(option -> option.setValueFromString(written.get(option.getName())));
-
-        //log.error("UPDATING WRITER RESOURCE WITH STORED AFTER ASSIGNING");
-
-        updateInternalResourceLockFromStored();
     }
 
-    public void updateStoredUserFromWritten() {
+    /**
+     * Assigns the written user option values to the stored ones, returning {@code true} if every stored user option was written
+     * with a valid value, i.e. the stored values now match the config file.
+     */
+    public boolean updateStoredUserFromWritten() {
         // Only contains keys that stored config lock cat also has
         Map<String, String> written = serializer.getMappedWrittenUserOptions();
 
         written.forEach((key, value) -> config.getOptionStorage().getOption(key).setValueFromString(value));
 
-        //log.error("UPDATING WRITER USER WITH STORED AFTER ASSIGNING");
-
-        updateInternalUserFromStored();
+        // Repaired values and missing options, left to their stored value, differ from the file
+        Map<String, String> raw = serializer.getMappedWrittenOptions();
+        return written.size() == serializer.getMappedStoredUserOptions().size()
+                && written.entrySet().stream().allMatch(entry -> entry.getValue().equals(raw.get(entry.getKey())));
     }
 
-    @ApiStatus.Internal
-    public void updateInternalHeader() {
-        header = new ArrayList<>();
-        header.add(serializer.title());
-        header.add(serializer.lastModified());
-        //header.add("");
+    /**
+     * Returns the values every stored option would currently be written with, to be written later, possibly on another thread.
+     */
+    public StoredValues captureStoredValues() {
+        // Read before the values, so that changes made while capturing are still considered unsaved
+        long version = config.getOptionStorage().getVersion();
+        Map<AbstractOption<?>, String> values = new IdentityHashMap<>();
+        for (AbstractOption<?> option : config.getOptionStorage().getOptions()) values.put(option, serializer.storedValue(option));
+        return new StoredValues(version, values);
     }
 
-    @ApiStatus.Internal
-    public void updateInternalConfigLockFromStored() {
-        configLock = new ArrayList<>(serializer.configLock());
-        //configLock.add("");
+    /**
+     * Writes the stored resource locks to the config file, keeping the written user options.
+     */
+    public void overwriteLocksWithStored() {
+        write(captureStoredValues(), false);
+    }
 
-        //log.error("UPDATING WRITER CONFIG WITH STORED");
+    /**
+     * Writes the stored options to the config file, then marks them as clean.
+     */
+    public void overwriteWithStored() {
+        write(captureStoredValues(), true);
     }
 
-    @ApiStatus.Internal
-    public void updateInternalResourceLockFromStored() {
-        resourceLock = new ArrayList<>(serializer.resourceLock());
-        //resourceLock.add("");
+    /**
+     * Writes the provided values to the config file, either every option or only the locks. Writes are done one at a time;
+     * values captured before the last written ones are captured again, so that a late write never reverts a newer one.
+     */
+    public synchronized void write(StoredValues values, boolean userOptions) {
+        if (values.version() < writtenVersion) values = captureStoredValues();
 
-        //log.error("UPDATING WRITER RESOURCE WITH STORED");
+        serializer.pinStoredValues(values.values());
+        try {
+            if (userOptions) writeAll(values.version());
+            else writeLocks(values.version());
+        } catch (IOException e) {
+            LOGGER.error("There was an error writing to the config file: %s".formatted(e));
+        } finally {
+            serializer.pinStoredValues(null);
+        }
     }
 
-    @ApiStatus.Internal
-    public void updateInternalUserFromStored() {
-        user = new ArrayList<>();
+    private void writeLocks(long version) throws IOException {
+        if (serializer.getMappedWrittenResourceLock().equals(serializer.getMappedStoredResourceLock())) return;
 
-        config.getOptionStorage().getCategories().stream().filter(category -> !category.isConfigLockCat() && !category.isResourceLockCat())
-                .forEach(category -> {
-                    user.addAll(serializer.category(category));
-                    category.getOptions().forEach(option -> user.addAll(serializer.commentedProperty(option)));
-                });
+        if (!patchWithStored(config.getOptionStorage().getResourceLockCat().getOptions()))
+            overwriteFile(getAllWithWrittenUser(), getValuesWithWrittenUser());
+        writtenVersion = Math.max(writtenVersion, version);
+    }
 
-        //log.error("UPDATING WRITER USER WITH STORED");
+    private void writeAll(long version) throws IOException {
+        Map<String, String> stored = serializer.getMappedStoredOptions();
+        // A valid sidecar holds the written values, so that the file doesn't need to be parsed
+        boolean upToDate = binaryCache.read().map(snapshot -> snapshot.matches(stored))
+                .orElseGet(() -> serializer.getMappedWrittenOptions().equals(stored));
+
+        if (!upToDate && !patchWithStored(config.getOptionStorage().getOptions())) overwriteFile(getAllLines(), stored);
+        writtenVersion = Math.max(writtenVersion, version);
+        config.getOptionStorage().markClean(version);
     }
 
-    public void overwriteLocksWithStored(){
-        if(serializer.getMappedWrittenResourceLock().equals(serializer.getMappedStoredResourceLock())) return;
+    /**
+     * Rewrites only the property lines of the provided options whose stored value differs from the written one, leaving every other
+     * line (including comments added by the user) as it is. <p>
+     * Returns {@code false} without writing anything if the file's structure doesn't match the stored one (different title or
+     * set of options), meaning a full rewrite is required.
+     */
+    private boolean patchWithStored(Collection<? extends AbstractOption<?>> options) throws IOException {
+        // Patching relies on the line-based syntax of properties
+        if (!(config.getFormat() instanceof PropertiesFormat)) return false;
 
-        updateInternalHeader();
-        try {
-            overwriteFile(getAllWithWrittenUser());
-            //log.error("OVERRIDING");
-        } catch (IOException e) {
-            LOGGER.error("There was an error writing to the config file: %s".formatted(e));
-            //throw new RuntimeException(e);
+        Optional<List<String>> contents = serializer.getWrittenContents();
+        if (contents.isEmpty() || contents.get().size() < 2 || !contents.get().get(0).equals(serializer.title())) return false;
+
+        Map<String, String> written = serializer.getMappedWrittenOptions();
+        if (!written.keySet().equals(serializer.getMappedStoredOptions().keySet())) return false;
+
+        Map<String, AbstractOption<?>> changed = new HashMap<>();
+        for (AbstractOption<?> option : options) {
+            if (!serializer.storedValue(option).equals(written.get(option.getName()))) changed.put(option.getName(), option);
         }
-    }
+        if (changed.isEmpty()) return true;
 
-    public void overwriteWithStored() {
-        if (serializer.getMappedWrittenOptions().equals(serializer.getMappedStoredOptions())) return;
+        List<String> lines = new ArrayList<>(contents.get());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isEmpty() || line.charAt(0) == '#') continue;
 
-        updateInternalHeader();
-        try {
-            overwriteFile(getAllLines());
-            //log.error("OVERRIDING");
-        } catch (IOException e) {
-            LOGGER.error("There was an error writing to the config file: %s".formatted(e));
-            //throw new RuntimeException(e);
+            int separator = line.indexOf(" = ");
+            if (separator < 0) continue;
+
+            AbstractOption<?> option = changed.get(line.substring(0, separator));
+            if (option != null) lines.set(i, serializer.property(option));
         }
+        if (lines.get(1).startsWith("# Last Modified")) lines.set(1, serializer.lastModified());
+
+        Map<String, String> values = new HashMap<>(serializer.getValidatedWrittenOptions());
+        changed.forEach((name, option) -> values.put(name, serializer.storedValue(option)));
+        overwriteFile(lines, values);
+        LOGGER.debug("Patched {} option(s) for \"{}\"", changed.size(), config.getIdentifier());
+        return true;
     }
 
-    private List<String> getAllLinesWithoutHeader() {
-        return Stream.of(configLock, resourceLock, user).flatMap(Collection::stream).collect(Collectors.toList());
+    private List<String> getHeader() {
+        return List.of(serializer.title(), serializer.lastModified());
     }
 
     /**
      * Returns a list with all the stored header/lock lines and the written user option lines
      */
     private List<String> getAllWithWrittenUser(){
-        return Stream.of(getAllLockLines(), serializer.getWrittenUserSection()).flatMap(Collection::stream).collect(Collectors.toList());
+        Set<AbstractOption<?>> locks = new HashSet<>(config.getOptionStorage().getConfigLockCat().getOptions());
+        locks.addAll(config.getOptionStorage().getResourceLockCat().getOptions());
+        Map<String, String> written = serializer.getValidatedWrittenOptions();
+
+        return config.getFormat().write(config, getHeader(), option -> locks.contains(option) ?
+                serializer.storedValue(option) : written.getOrDefault(option.getName(), serializer.storedValue(option)));
     }
 
-    private List<String> getAllLockLines() {
-        return Stream.of(header, configLock, resourceLock).flatMap(Collection::stream).collect(Collectors.toList());
+    /**
+     * Returns the values of the lines from {@link #getAllWithWrittenUser()}.
+     */
+    private Map<String, String> getValuesWithWrittenUser() {
+        Map<String, String> values = new HashMap<>(serializer.getValidatedWrittenOptions());
+        // Only stored options are written, missing ones with their stored value
+        Map<String, String> stored = serializer.getMappedStoredOptions();
+        values.keySet().retainAll(stored.keySet());
+        stored.forEach(values::putIfAbsent);
+        values.putAll(serializer.getMappedStoredConfigLock());
+        values.putAll(serializer.getMappedStoredResourceLock());
+        return values;
     }
 
     private List<String> getAllLines() {
-        return Stream.of(header, configLock, resourceLock, user).flatMap(Collection::stream).collect(Collectors.toList());
+        return config.getFormat().write(config, getHeader(), serializer::storedValue);
+    }
+
+    /**
+     * Replaces the config file's contents with the provided lines, (re)computing the checksum line that follows the header.
+     * The provided values, those of the options in the lines, are written to the binary sidecar.
+     */
+    private void overwriteFile(List<String> lines, Map<String, String> values) throws IOException {
+        List<String> result = new ArrayList<>(lines);
+        if (result.size() > 2 && serializer.isChecksumLine(result.get(2))) result.remove(2);
+        String checksum = "";
+        if (result.size() >= 2) {
+            checksum = serializer.checksum(result);
+            result.add(2, checksum);
+        }
+        charSink.writeLines(result);
+        lastWritten = FileStamp.of(config.propertiesPath);
+        binaryCache.write(checksum, values);
     }
 
-    private void overwriteFile(List<String> lines) throws IOException {
-        charSink.writeLines(lines);
+    /**
+     * Returns {@code true} if the config file is still the one last written by this writer, i.e. it wasn't changed by anything else since.
+     * Writes hold this writer's lock, so a write can't be halfway done while checking.
+     */
+    public synchronized boolean isLastWritten() {
+        return lastWritten != null && lastWritten.equals(FileStamp.of(config.propertiesPath));
+    }
+
+    /**
+     * Replaces a torn config file with its backup, returning {@code true} if an intact backup was found.
+     * The torn file is first copied to {@code <name>.corrupt}, so that whatever the user wrote in it can still be recovered.
+     */
+    public boolean restoreBackup() {
+        Path backup = ConfigCharSink.backupOf(config.propertiesPath);
+        if (!Files.exists(backup) || !serializer.isIntact(FileUtils.toList(backup))) return false;
+
+        try {
+            Path corrupt = config.propertiesPath.resolveSibling(config.propertiesPath.getFileName() + ".corrupt");
+            Files.copy(config.propertiesPath, corrupt, StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(backup, config.propertiesPath, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Unable to restore the config backup at {}", backup, e);
+            return false;
+        } finally {
+            serializer.invalidateWrittenContents();
+        }
+    }
+
+    /**
+     * Values of every stored option as of the provided storage version.
+     */
+    public record StoredValues(long version, Map<AbstractOption<?>, String> values) {
+    }
+
+    /**
+     * Modification time and size of a file, null if it can't be read.
+     */
+    private record FileStamp(long modified, long size) {
+
+        static FileStamp of(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new FileStamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+            } catch (IOException e) {
+                return null;
+            }
+        }
     }
 
     public static class ConfigCharSink extends CharSink {
@@ -191,9 +320,110 @@ public class ConfigWriter {
             this.config = config;
         }
 
+        /**
+         * Opens a writer to a sibling temporary file. Once closed, its contents are forced to disk, the current config file is backed up
+         * and the temporary file is moved in its place: a failed or interrupted write leaves either the previous file or its backup intact.
+         * If writing failed, the temporary file is deleted instead and the config file is left untouched.
+         */
         @Override
         public Writer openStream() throws IOException {
-            return Files.newBufferedWriter(config.propertiesPath);
+            Path temp = config.propertiesPath.resolveSibling(config.propertiesPath.getFileName() + ".tmp");
+            FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+            return new FilterWriter(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+                private boolean failed = false;
+                private boolean closed = false;
+
+                @Override
+                public void write(int c) throws IOException {
+                    try {
+                        super.write(c);
+                    } catch (IOException e) {
+                        failed = true;
+                        throw e;
+                    }
+                }
+
+                @Override
+                public void write(char[] buffer, int offset, int length) throws IOException {
+                    try {
+                        super.write(buffer, offset, length);
+                    } catch (IOException e) {
+                        failed = true;
+                        throw e;
+                    }
+                }
+
+                @Override
+                public void write(String string, int offset, int length) throws IOException {
+                    try {
+                        super.write(string, offset, length);
+                    } catch (IOException e) {
+                        failed = true;
+                        throw e;
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (closed) return;
+                    closed = true;
+
+                    try {
+                        try {
+                            if (!failed) {
+                                flush();
+                                channel.force(true);
+                            }
+                        } finally {
+                            super.close();
+                        }
+                        if (failed) throw new IOException("Writing %s failed, the config file was left untouched".formatted(temp));
+                        commit(temp);
+                    } catch (IOException e) {
+                        Files.deleteIfExists(temp);
+                        throw e;
+                    } finally {
+                        config.getWriter().getSerializer().invalidateWrittenContents();
+                    }
+                }
+            };
+        }
+
+        /**
+         * Backs up the current config file, then replaces it with the provided fully written file. The backup and the directory
+         * entries are forced to disk as well, so that a crash right after still leaves a complete file or its backup.
+         */
+        private void commit(Path temp) throws IOException {
+            if (Files.exists(config.propertiesPath)) {
+                Path backup = backupOf(config.propertiesPath);
+                Files.copy(config.propertiesPath, backup, StandardCopyOption.REPLACE_EXISTING);
+                try (FileChannel channel = FileChannel.open(backup, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+            }
+            replace(temp, config.propertiesPath);
+            forceDirectory(config.propertiesPath.getParent());
+        }
+
+        private static void forceDirectory(Path directory) {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException e) {
+                // Directories can't be opened on every platform (e.g. Windows), where moves are durable once done
+            }
+        }
+
+        public static Path backupOf(Path path) {
+            return path.resolveSibling(path.getFileName() + ".bak");
+        }
+
+        static void replace(Path source, Path target) throws IOException {
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
         }
     }
 }
@@ -0,0 +1,76 @@
+package evergoodteam.chassis.config.format;
+
+import evergoodteam.chassis.config.ConfigBase;
+import evergoodteam.chassis.config.option.AbstractOption;
+import evergoodteam.chassis.config.option.BoolOption;
+import evergoodteam.chassis.config.option.DoubleOption;
+import evergoodteam.chassis.config.option.IntOption;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * File format of a {@link ConfigBase}, chosen when the config is created. <p>
+ * A format parses a config file in a single pass into option names mapped to their raw written values, the same strings
+ * {@link AbstractOption#setValueFromString} accepts, and writes the categories and options of a config back to lines.
+ * Option names are unique in a config, so categories only give structure to the file and are flattened away when parsing.
+ */
+public interface ConfigFormat {
+
+    ConfigFormat PROPERTIES = new PropertiesFormat();
+    ConfigFormat TOML = new TomlFormat();
+    ConfigFormat JSON5 = new Json5Format();
+
+    /**
+     * Returns the extension of files in this format, without the leading dot.
+     */
+    String getExtension();
+
+    /**
+     * Returns the characters starting a line comment, without any following whitespace.
+     */
+    String getCommentPrefix();
+
+    default String comment(String text) {
+        return getCommentPrefix() + " " + text;
+    }
+
+    /**
+     * Parses the provided text, returning the written options in order. Never throws: syntax errors are added to the provided
+     * list and the parser recovers where the format allows it, otherwise returns what was read up to the error.
+     */
+    Map<String, String> parse(CharSequence text, List<String> errors);
+
+    /**
+     * Returns the lines of a config file made of the provided header, already commented, followed by every category of the
+     * config and their options, whose values are given by the provided function.
+     */
+    List<String> write(ConfigBase config, List<String> header, Function<AbstractOption<?>, String> values);
+
+    /**
+     * Returns {@code true} if the option's values are written without quotes, i.e. booleans and numbers.
+     */
+    static boolean isBare(AbstractOption<?> option) {
+        return option instanceof BoolOption || option instanceof IntOption || option instanceof DoubleOption;
+    }
+
+    /**
+     * Returns the provided string between double quotes, escaping quotes, backslashes and control characters.
+     */
+    static String quote(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,160 @@
+package evergoodteam.chassis.config.format;
+
+/**
+ * Single-pass cursor over the text of a config file, shared by the parsers of the {@link ConfigFormat}s. <p>
+ * Characters are only ever read once and going forward, tracking the current line for error messages.
+ */
+class ConfigTokenizer {
+
+    private final CharSequence text;
+    private int position = 0;
+    private int line = 1;
+
+    ConfigTokenizer(CharSequence text) {
+        this.text = text;
+    }
+
+    boolean hasMore() {
+        return position < text.length();
+    }
+
+    /**
+     * Returns the current character without consuming it, or {@code '\0'} at the end of the text.
+     */
+    char peek() {
+        return position < text.length() ? text.charAt(position) : '\0';
+    }
+
+    char peek(int offset) {
+        return position + offset < text.length() ? text.charAt(position + offset) : '\0';
+    }
+
+    char next() {
+        char c = text.charAt(position++);
+        if (c == '\n') line++;
+        return c;
+    }
+
+    boolean consume(char expected) {
+        if (peek() != expected || !hasMore()) return false;
+        next();
+        return true;
+    }
+
+    void expect(char expected) {
+        if (!consume(expected)) throw error("expected '%s' but found %s".formatted(expected, describe(peek())));
+    }
+
+    boolean isLineEnd() {
+        return !hasMore() || peek() == '\n' || peek() == '\r';
+    }
+
+    void skipInlineWhitespace() {
+        while (hasMore() && (peek() == ' ' || peek() == '\t')) next();
+    }
+
+    /**
+     * Skips to the beginning of the next line.
+     */
+    void skipLine() {
+        while (hasMore() && next() != '\n') ;
+    }
+
+    /**
+     * Reads a string enclosed in the current quote character. Escapes are only processed for double quoted strings, unless
+     * {@code escapeSingle} is set.
+     */
+    String readQuoted(boolean escapeSingle) {
+        char quote = next();
+        boolean escapes = quote == '"' || escapeSingle;
+        StringBuilder builder = new StringBuilder();
+
+        while (true) {
+            if (!hasMore() || peek() == '\n') throw error("unterminated string");
+
+            char c = next();
+            if (c == quote) return builder.toString();
+            if (c != '\\' || !escapes) {
+                builder.append(c);
+                continue;
+            }
+
+            if (!hasMore()) throw error("unterminated string");
+            char escaped = next();
+            switch (escaped) {
+                case 'n' -> builder.append('\n');
+                case 't' -> builder.append('\t');
+                case 'r' -> builder.append('\r');
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case '0' -> builder.append('\0');
+                case 'u' -> builder.append(readUnicode());
+                case '\n' -> {
+                    // Line continuation
+                }
+                default -> builder.append(escaped);
+            }
+        }
+    }
+
+    private char readUnicode() {
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(peek(), 16);
+            if (digit < 0) throw error("invalid unicode escape");
+            next();
+            code = code * 16 + digit;
+        }
+        return (char) code;
+    }
+
+    /**
+     * Reads the rest of the current line as it is, without consuming the line end.
+     */
+    String readLine() {
+        int start = position;
+        while (!isLineEnd()) next();
+        return text.subSequence(start, position).toString();
+    }
+
+    /**
+     * Reads characters until one of the provided stop characters, a line end or the end of the text, trimming trailing whitespace.
+     */
+    String readUntil(String stops) {
+        int start = position;
+        while (!isLineEnd() && stops.indexOf(peek()) < 0) next();
+
+        int end = position;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        return text.subSequence(start, end).toString();
+    }
+
+    /**
+     * Reads characters for which the provided test passes.
+     */
+    String readWhile(CharTest test) {
+        int start = position;
+        while (hasMore() && test.test(peek())) next();
+        return text.subSequence(start, position).toString();
+    }
+
+    SyntaxException error(String message) {
+        return new SyntaxException("line %s: %s".formatted(line, message));
+    }
+
+    private static String describe(char c) {
+        return c == '\0' ? "end of file" : c == '\n' ? "end of line" : "'" + c + "'";
+    }
+
+    interface CharTest {
+
+        boolean test(char c);
+    }
+
+    static class SyntaxException extends RuntimeException {
+
+        SyntaxException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
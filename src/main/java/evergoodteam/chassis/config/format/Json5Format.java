@@ -0,0 +1,154 @@
+package evergoodteam.chassis.config.format;
+
+import evergoodteam.chassis.config.ConfigBase;
+import evergoodteam.chassis.config.ConfigSerializer;
+import evergoodteam.chassis.config.option.AbstractOption;
+import evergoodteam.chassis.config.option.CategoryOption;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * JSON5 format, where each category is a nested object of the root one. Options of the generic category are written
+ * directly in the root object. <p>
+ * The parser supports objects, single and double quoted strings, unquoted keys, bare values such as booleans and numbers,
+ * line and block comments, and trailing commas. Since objects can span many lines, parsing stops at the first error and
+ * keeps the options read up to it.
+ */
+public class Json5Format implements ConfigFormat {
+
+    private static final String INDENT = "    ";
+
+    @Override
+    public String getExtension() {
+        return "json5";
+    }
+
+    @Override
+    public String getCommentPrefix() {
+        return "//";
+    }
+
+    @Override
+    public Map<String, String> parse(CharSequence text, List<String> errors) {
+        Map<String, String> options = new LinkedHashMap<>();
+        ConfigTokenizer tokenizer = new ConfigTokenizer(text);
+
+        try {
+            skipIgnored(tokenizer);
+            if (!tokenizer.hasMore()) return options;
+
+            readObject(tokenizer, options);
+            skipIgnored(tokenizer);
+            if (tokenizer.hasMore()) throw tokenizer.error("unexpected '%s' after the root object".formatted(tokenizer.peek()));
+        } catch (ConfigTokenizer.SyntaxException e) {
+            errors.add(e.getMessage());
+        }
+        return options;
+    }
+
+    /**
+     * Reads an object, flattening the values of nested objects into the provided map.
+     */
+    private static void readObject(ConfigTokenizer tokenizer, Map<String, String> options) {
+        tokenizer.expect('{');
+
+        while (true) {
+            skipIgnored(tokenizer);
+            if (tokenizer.consume('}')) return;
+
+            String key = readKey(tokenizer);
+            skipIgnored(tokenizer);
+            tokenizer.expect(':');
+            skipIgnored(tokenizer);
+
+            char c = tokenizer.peek();
+            if (c == '{') readObject(tokenizer, options);
+            else if (c == '"' || c == '\'') options.put(key, tokenizer.readQuoted(true));
+            else if (c == '[') throw tokenizer.error("arrays are not supported, found one for \"%s\"".formatted(key));
+            else {
+                String value = tokenizer.readUntil(",}/");
+                if (value.isEmpty()) throw tokenizer.error("missing value for \"%s\"".formatted(key));
+                options.put(key, value);
+            }
+
+            skipIgnored(tokenizer);
+            if (!tokenizer.consume(',') && tokenizer.peek() != '}')
+                throw tokenizer.error("expected ',' or '}' but found '%s'".formatted(tokenizer.peek()));
+        }
+    }
+
+    private static String readKey(ConfigTokenizer tokenizer) {
+        char c = tokenizer.peek();
+        if (c == '"' || c == '\'') return tokenizer.readQuoted(true);
+
+        String key = tokenizer.readWhile(Json5Format::isIdentifierChar);
+        if (key.isEmpty()) throw tokenizer.error("expected a key");
+        return key;
+    }
+
+    /**
+     * Skips whitespace, line comments and block comments.
+     */
+    private static void skipIgnored(ConfigTokenizer tokenizer) {
+        while (tokenizer.hasMore()) {
+            char c = tokenizer.peek();
+            if (Character.isWhitespace(c)) tokenizer.next();
+            else if (c == '/' && tokenizer.peek(1) == '/') tokenizer.skipLine();
+            else if (c == '/' && tokenizer.peek(1) == '*') {
+                tokenizer.next();
+                tokenizer.next();
+                while (tokenizer.hasMore() && !(tokenizer.peek() == '*' && tokenizer.peek(1) == '/')) tokenizer.next();
+                if (!tokenizer.hasMore()) throw tokenizer.error("unterminated comment");
+                tokenizer.next();
+                tokenizer.next();
+            } else return;
+        }
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static String key(String name) {
+        if (name.isEmpty() || Character.isDigit(name.charAt(0))) return ConfigFormat.quote(name);
+        for (int i = 0; i < name.length(); i++) {
+            if (!isIdentifierChar(name.charAt(i))) return ConfigFormat.quote(name);
+        }
+        return name;
+    }
+
+    @Override
+    public List<String> write(ConfigBase config, List<String> header, Function<AbstractOption<?>, String> values) {
+        ConfigSerializer serializer = config.getWriter().getSerializer();
+        CategoryOption generic = config.getOptionStorage().getGenericCategory();
+        List<String> lines = new ArrayList<>(header);
+
+        lines.add("{");
+        writeOptions(lines, serializer, generic, values, INDENT);
+
+        for (CategoryOption category : config.getOptionStorage().getCategories()) {
+            if (category == generic) continue;
+
+            List<String> comment = serializer.category(category, getCommentPrefix());
+            (comment.isEmpty() ? List.of("") : comment).forEach(line -> lines.add(line.isEmpty() ? line : INDENT + line));
+            lines.add("%s%s: {".formatted(INDENT, key(category.getName())));
+            writeOptions(lines, serializer, category, values, INDENT + INDENT);
+            lines.add(INDENT + "},");
+        }
+
+        lines.add("}");
+        return lines;
+    }
+
+    private void writeOptions(List<String> lines, ConfigSerializer serializer, CategoryOption category, Function<AbstractOption<?>, String> values, String indent) {
+        for (AbstractOption<?> option : category.getOptions()) {
+            String value = values.apply(option);
+            serializer.comment(option, getCommentPrefix()).forEach(line -> lines.add(indent + line));
+            lines.add("%s%s: %s,".formatted(indent, key(option.getName()), ConfigFormat.isBare(option) ? value : ConfigFormat.quote(value)));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package evergoodteam.chassis.config.format;
+
+import evergoodteam.chassis.config.ConfigBase;
+import evergoodteam.chassis.config.ConfigSerializer;
+import evergoodteam.chassis.config.option.AbstractOption;
+import evergoodteam.chassis.config.option.CategoryOption;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The default format, made of {@code name = value} lines and {@code #} comments. Values are written as they are.
+ */
+public class PropertiesFormat implements ConfigFormat {
+
+    private static final String SEPARATOR = " = ";
+
+    @Override
+    public String getExtension() {
+        return "properties";
+    }
+
+    @Override
+    public String getCommentPrefix() {
+        return "#";
+    }
+
+    @Override
+    public Map<String, String> parse(CharSequence text, List<String> errors) {
+        Map<String, String> options = new LinkedHashMap<>();
+        ConfigTokenizer tokenizer = new ConfigTokenizer(text);
+
+        while (tokenizer.hasMore()) {
+            if (tokenizer.peek() != '#') {
+                // The separator is only looked for inside the line
+                String line = tokenizer.readLine();
+                int separator = line.indexOf(SEPARATOR);
+                if (separator >= 0) options.put(line.substring(0, separator), line.substring(separator + SEPARATOR.length()));
+                else if (!line.isBlank()) errors.add(tokenizer.error("expected '%s'".formatted(SEPARATOR)).getMessage());
+            }
+            tokenizer.skipLine();
+        }
+        return options;
+    }
+
+    @Override
+    public List<String> write(ConfigBase config, List<String> header, Function<AbstractOption<?>, String> values) {
+        ConfigSerializer serializer = config.getWriter().getSerializer();
+        List<String> lines = new ArrayList<>(header);
+
+        for (CategoryOption category : config.getOptionStorage().getCategories()) {
+            lines.addAll(serializer.category(category));
+            for (AbstractOption<?> option : category.getOptions()) {
+                lines.addAll(serializer.comment(option));
+                lines.add(serializer.property(option.getName(), values.apply(option)));
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,157 @@
+package evergoodteam.chassis.config.format;
+
+import evergoodteam.chassis.config.ConfigBase;
+import evergoodteam.chassis.config.ConfigSerializer;
+import evergoodteam.chassis.config.option.AbstractOption;
+import evergoodteam.chassis.config.option.CategoryOption;
+import evergoodteam.chassis.config.option.DoubleOption;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * TOML format, where each category is a table. Options of the generic category are written at the top, before any table. <p>
+ * The parser supports the subset of TOML this format writes: tables, bare, quoted and dotted keys, basic and literal strings,
+ * and bare values such as booleans and numbers. Non-finite floats are written as {@code nan} and {@code inf}, and read back as
+ * {@link Double#toString} spells them. Malformed lines are reported and skipped.
+ */
+public class TomlFormat implements ConfigFormat {
+
+    @Override
+    public String getExtension() {
+        return "toml";
+    }
+
+    @Override
+    public String getCommentPrefix() {
+        return "#";
+    }
+
+    @Override
+    public Map<String, String> parse(CharSequence text, List<String> errors) {
+        Map<String, String> options = new LinkedHashMap<>();
+        ConfigTokenizer tokenizer = new ConfigTokenizer(text);
+
+        while (tokenizer.hasMore()) {
+            try {
+                tokenizer.skipInlineWhitespace();
+                if (tokenizer.isLineEnd() || tokenizer.peek() == '#') {
+                    tokenizer.skipLine();
+                    continue;
+                }
+
+                // Tables only group options, whose names are unique anyway
+                if (tokenizer.consume('[')) {
+                    readKey(tokenizer);
+                    tokenizer.skipInlineWhitespace();
+                    tokenizer.expect(']');
+                    endLine(tokenizer);
+                    continue;
+                }
+
+                String key = readKey(tokenizer);
+                tokenizer.skipInlineWhitespace();
+                tokenizer.expect('=');
+                tokenizer.skipInlineWhitespace();
+
+                char c = tokenizer.peek();
+                String value = c == '"' || c == '\'' ? tokenizer.readQuoted(false) : fromSpecialFloat(tokenizer.readUntil("#"));
+                if (value.isEmpty()) throw tokenizer.error("missing value for \"%s\"".formatted(key));
+
+                options.put(key, value);
+                endLine(tokenizer);
+            } catch (ConfigTokenizer.SyntaxException e) {
+                errors.add(e.getMessage());
+                tokenizer.skipLine();
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Reads a possibly dotted key, returning its last part.
+     */
+    private static String readKey(ConfigTokenizer tokenizer) {
+        String key;
+        do {
+            tokenizer.skipInlineWhitespace();
+            char c = tokenizer.peek();
+            if (c == '"' || c == '\'') key = tokenizer.readQuoted(false);
+            else {
+                key = tokenizer.readWhile(TomlFormat::isBareKeyChar);
+                if (key.isEmpty()) throw tokenizer.error("expected a key");
+            }
+            tokenizer.skipInlineWhitespace();
+        } while (tokenizer.consume('.'));
+        return key;
+    }
+
+    private static void endLine(ConfigTokenizer tokenizer) {
+        tokenizer.skipInlineWhitespace();
+        if (!tokenizer.isLineEnd() && tokenizer.peek() != '#') throw tokenizer.error("unexpected '%s'".formatted(tokenizer.peek()));
+        tokenizer.skipLine();
+    }
+
+    private static boolean isBareKeyChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-';
+    }
+
+    private static String fromSpecialFloat(String value) {
+        return switch (value) {
+            case "nan", "+nan", "-nan" -> "NaN";
+            case "inf", "+inf" -> "Infinity";
+            case "-inf" -> "-Infinity";
+            default -> value;
+        };
+    }
+
+    private static String toSpecialFloat(String value) {
+        return switch (value) {
+            case "NaN" -> "nan";
+            case "Infinity" -> "inf";
+            case "-Infinity" -> "-inf";
+            default -> value;
+        };
+    }
+
+    private static String key(String name) {
+        if (name.isEmpty()) return "\"\"";
+        for (int i = 0; i < name.length(); i++) {
+            if (!isBareKeyChar(name.charAt(i))) return ConfigFormat.quote(name);
+        }
+        return name;
+    }
+
+    @Override
+    public List<String> write(ConfigBase config, List<String> header, Function<AbstractOption<?>, String> values) {
+        ConfigSerializer serializer = config.getWriter().getSerializer();
+        CategoryOption generic = config.getOptionStorage().getGenericCategory();
+        List<String> lines = new ArrayList<>(header);
+
+        // Keys after a table header belong to it, so the generic options have to come first
+        if (!generic.getOptions().isEmpty()) lines.add("");
+        writeOptions(lines, serializer, generic, values);
+
+        for (CategoryOption category : config.getOptionStorage().getCategories()) {
+            if (category == generic) continue;
+
+            List<String> comment = serializer.category(category, getCommentPrefix());
+            lines.addAll(comment.isEmpty() ? List.of("") : comment);
+            lines.add("[%s]".formatted(key(category.getName())));
+            writeOptions(lines, serializer, category, values);
+        }
+        return lines;
+    }
+
+    private void writeOptions(List<String> lines, ConfigSerializer serializer, CategoryOption category, Function<AbstractOption<?>, String> values) {
+        for (AbstractOption<?> option : category.getOptions()) {
+            String value = values.apply(option);
+            if (option instanceof DoubleOption) value = toSpecialFloat(value);
+            lines.addAll(serializer.comment(option, getCommentPrefix()));
+            lines.add("%s = %s".formatted(key(option.getName()), ConfigFormat.isBare(option) ? value : ConfigFormat.quote(value)));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package evergoodteam.chassis.config.networking;
+
+import evergoodteam.chassis.config.ConfigBase;
+import evergoodteam.chassis.config.option.AbstractOption;
+import evergoodteam.chassis.config.option.ConfigSnapshot;
+import evergoodteam.chassis.config.option.OptionStorage;
+import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
+import net.fabricmc.fabric.api.networking.v1.PlayerLookup;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Broadcasts changes to the server options of synced configs to every connected client during play. <p>
+ * Changes are detected through the {@link OptionStorage#getVersion() storage version} at the end of each tick and diffed against
+ * the last broadcast {@link ConfigSnapshot}, so any number of changes to a config are coalesced into a single delta. Deltas
+ * for the same config are sent at most once every {@link #MIN_INTERVAL_TICKS} ticks, and all deltas of a tick share one packet. <p>
+ * One broadcaster is kept for each running server, so that nothing carries over when an integrated server is restarted.
+ */
+public class ConfigDeltaBroadcaster {
+
+    private static final int MIN_INTERVAL_TICKS = 10;
+    private static final Map<MinecraftServer, ConfigDeltaBroadcaster> BROADCASTERS = new ConcurrentHashMap<>();
+    private final Map<ConfigBase, State> states = new HashMap<>();
+    private int ticks = 0;
+
+    public static void start(MinecraftServer server) {
+        BROADCASTERS.put(server, new ConfigDeltaBroadcaster());
+    }
+
+    public static void stop(MinecraftServer server) {
+        BROADCASTERS.remove(server);
+    }
+
+    public static void onTick(MinecraftServer server) {
+        ConfigDeltaBroadcaster broadcaster = BROADCASTERS.get(server);
+        if (broadcaster != null) broadcaster.tick(server);
+    }
+
+    private void tick(MinecraftServer server) {
+        ticks++;
+
+        Map<ConfigBase, List<AbstractOption<?>>> deltas = new LinkedHashMap<>();
+        for (ConfigBase config : ConfigNetworking.getSyncedConfigs()) {
+            OptionStorage storage = config.getOptionStorage();
+            State state = states.get(config);
+
+            if (state == null) {
+                states.put(config, new State(storage.getSnapshot(), ticks));
+                continue;
+            }
+            if (state.snapshot.getVersion() == storage.getVersion() || ticks - state.sentTick < MIN_INTERVAL_TICKS) continue;
+
+            ConfigSnapshot current = storage.getSnapshot();
+            List<AbstractOption<?>> changed = new ArrayList<>();
+            // Slots only index the local snapshots, options are sent with their stable id
+            for (AbstractOption<?> option : config.getWriter().getSerializer().getStoredServerUserOptions()) {
+                int slot = option.getSlot();
+                if (slot >= state.snapshot.size() || !Objects.equals(state.snapshot.get(slot), current.get(slot))) changed.add(option);
+            }
+
+            state.snapshot = current;
+            if (changed.isEmpty()) continue;
+
+            state.sentTick = ticks;
+            deltas.put(config, changed);
+        }
+        if (deltas.isEmpty()) return;
+
+        PacketByteBuf buf = PacketByteBufs.create();
+        buf.writeVarInt(deltas.size());
+        deltas.forEach((config, options) -> {
+            buf.writeIdentifier(config.getIdentifier());
+            OptionCodec.writeOptions(buf, options);
+        });
+
+        for (ServerPlayerEntity player : PlayerLookup.all(server)) {
+            // The host of an integrated server shares the same options already
+            if (server.isHost(player.getGameProfile()) || !ServerPlayNetworking.canSend(player, ConfigNetworking.DELTA)) continue;
+            ServerPlayNetworking.send(player, ConfigNetworking.DELTA, PacketByteBufs.copy(buf));
+        }
+        buf.release();
+    }
+
+    private static class State {
+
+        private ConfigSnapshot snapshot;
+        private int sentTick;
+
+        private State(ConfigSnapshot snapshot, int sentTick) {
+            this.snapshot = snapshot;
+            this.sentTick = sentTick;
+        }
+    }
+}
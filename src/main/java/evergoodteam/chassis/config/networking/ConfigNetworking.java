@@ -1,90 +1,246 @@
 package evergoodteam.chassis.config.networking;
 
-import evergoodteam.chassis.common.Result;
 import evergoodteam.chassis.config.ConfigBase;
+import evergoodteam.chassis.util.handlers.RegistryHandler;
 import net.fabricmc.fabric.api.client.networking.v1.ClientConfigurationNetworking;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
 import net.fabricmc.fabric.api.networking.v1.ServerConfigurationConnectionEvents;
 import net.fabricmc.fabric.api.networking.v1.ServerConfigurationNetworking;
+import net.minecraft.network.PacketByteBuf;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
 import static evergoodteam.chassis.util.Reference.CMI;
+import static evergoodteam.chassis.util.Reference.MODID;
 
+/**
+ * Config handshake between server and client, run as a single {@link ConfigSyncTask} during the configuration phase. <p>
+ * The server sends one packet with a 64-bit hash of the server options of every synced config, which the client compares
+ * against its own and answers with a bitmap of the mismatched configs. Only on a mismatch are the server's values sent over,
+ * in the binary form of {@link OptionCodec}, for the client to report which options differ before being disconnected. <p>
+ * Configs can opt in to {@link #setPushOnMismatch pushing} their values instead: the client then applies them to a
+ * {@link ConfigOverlay} for the session and is let in, leaving its config file untouched. <p>
+ * During play, later changes to server options are sent to clients by the {@link ConfigDeltaBroadcaster} and applied to the same overlay.
+ */
 public class ConfigNetworking {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CMI + "/C/Network");
+    public static final Identifier SYNC = new Identifier(MODID, "config_sync");
+    public static final Identifier HANDSHAKE = new Identifier(MODID, "config_handshake");
+    public static final Identifier VALUES = new Identifier(MODID, "config_values");
+    public static final Identifier DELTA = new Identifier(MODID, "config_delta");
+    private static volatile List<ConfigBase> syncedConfigs;
     public final ConfigBase config;
     public final Identifier identifier;
     private boolean enabled = true;
+    private boolean synced = false;
+    private boolean pushOnMismatch = false;
+    private final ConfigOverlay overlay;
 
     public ConfigNetworking(ConfigBase config) {
         this.config = config;
         this.identifier = config.getIdentifier();
+        this.overlay = new ConfigOverlay(config);
     }
 
     public void enable() {
         enabled = true;
+        syncedConfigs = null;
     }
 
     public void disable() {
         enabled = false;
+        syncedConfigs = null;
+    }
+
+    public boolean isSynced() {
+        return enabled && synced;
+    }
+
+    /**
+     * Sets whether, on a mismatch, the server's values are pushed to the client for the session instead of disconnecting it.
+     */
+    public void setPushOnMismatch(boolean pushOnMismatch) {
+        this.pushOnMismatch = pushOnMismatch;
     }
 
+    public boolean isPushedOnMismatch() {
+        return pushOnMismatch;
+    }
+
+    public ConfigOverlay getOverlay() {
+        return overlay;
+    }
+
+    /**
+     * @deprecated the client side of the handshake is registered once for every config by {@link #registerClient()}
+     */
+    @Deprecated
     public void registerClientReceiverAndResponse() {
-        if (enabled) {
-            ClientConfigurationNetworking.registerGlobalReceiver(this.identifier.withSuffixedPath("sync"), (client, handler, buf, responseSender) -> {
-
-                Identifier requestIdentifier = Identifier.tryParse(buf.readString());
-                String request = buf.readString();
-                // TODO: account for user changing the option to desired but the option needs a restart: add a flag to options that turns on when a restart is needed and
-                String raw = ConfigBase.getConfig(requestIdentifier).getWriter().getSerializer().getMappedStoredServerUserOptions().toString();
-                //LOGGER.info("RAW: {}", raw);
-                //LOGGER.info("RECEIVED: {}", request);
-
-                if (!request.equals(raw))
-                    responseSender.sendPacket(requestIdentifier.withSuffixedPath("handshake"), PacketByteBufs.create().writeEnumConstant(Result.FAILURE));
-                else
-                    responseSender.sendPacket(requestIdentifier.withSuffixedPath("handshake"), PacketByteBufs.create().writeEnumConstant(Result.SUCCESS));
-            });
-        }
     }
 
+    /**
+     * Includes this config in the handshake run when a client joins the server.
+     */
     public void registerServerConnectionListener() {
-        if (enabled) {
-            ServerConfigurationConnectionEvents.CONFIGURE.register((handler, server) -> {
-                //LOGGER.info("Server sent config handshake for " + this.identifier);
-                ServerConfigurationNetworking.send(handler, this.identifier.withSuffixedPath("sync"),
-                        PacketByteBufs.create()
-                                .writeString(this.identifier.toString())
-                                .writeString(this.config.getWriter().getSerializer().getMappedStoredServerUserOptions().toString()));
-            });
-        }
+        synced = true;
+        syncedConfigs = null;
     }
 
+    /**
+     * @deprecated the server side of the handshake is registered once for every config by {@link #registerServer()}
+     */
+    @Deprecated
     public void registerHandshakeReceiver() {
-        if (enabled) {
-            ServerConfigurationNetworking.registerGlobalReceiver(this.identifier.withSuffixedPath("handshake"), (player, handler, buf, responseSender) -> {
-                Result result = buf.readEnumConstant(Result.class);
-                switch (result) {
-
-                    case FAILURE -> {
-                        handler.disconnect(Text.of("Config is mismatched between server and client!"));
-                        LOGGER.warn("Config mismatch for {}, disconnecting", this.identifier);
-                    }
-
-                    case ERROR -> {
-                        handler.disconnect(Text.of("Unable to complete config handshake"));
-                        LOGGER.error("Handshake failed due to error");
-                    }
-
-                    case SUCCESS -> {
-                        //LOGGER.info("Handshake succeeded with no issues");
-                    }
+    }
+
+    /**
+     * Returns the configs included in the handshake, sorted by identifier so that the order is the same on every join.
+     * The list is cached until a config is enabled, disabled or registered for syncing.
+     */
+    public static List<ConfigBase> getSyncedConfigs() {
+        List<ConfigBase> configs = syncedConfigs;
+        if (configs != null) return configs;
+
+        configs = RegistryHandler.getConfigurations().values().stream()
+                .filter(config -> config.getNetworkHandler().isSynced())
+                .sorted(Comparator.comparing(config -> config.getIdentifier().toString()))
+                .toList();
+        syncedConfigs = configs;
+        return configs;
+    }
+
+    /**
+     * Discards the overlays of every registered config.
+     */
+    public static void clearOverlays() {
+        RegistryHandler.getConfigurations().values().forEach(config -> config.getNetworkHandler().getOverlay().clear());
+    }
+
+    public static void registerServer() {
+        ServerLifecycleEvents.SERVER_STARTED.register(ConfigDeltaBroadcaster::start);
+        ServerTickEvents.END_SERVER_TICK.register(ConfigDeltaBroadcaster::onTick);
+        ServerLifecycleEvents.SERVER_STOPPED.register(ConfigDeltaBroadcaster::stop);
+
+        ServerConfigurationConnectionEvents.CONFIGURE.register((handler, server) -> {
+            if (getSyncedConfigs().isEmpty() || !ServerConfigurationNetworking.canSend(handler, SYNC)) return;
+            handler.addTask(new ConfigSyncTask(getSyncedConfigs()));
+        });
+
+        ServerConfigurationNetworking.registerGlobalReceiver(HANDSHAKE, (server, handler, buf, responseSender) -> {
+            BitSet mismatched = buf.readBitSet();
+
+            if (mismatched.isEmpty()) {
+                server.execute(() -> handler.completeTask(ConfigSyncTask.KEY));
+                return;
+            }
+
+            List<ConfigBase> configs = getSyncedConfigs();
+            List<ConfigBase> failed = mismatched.stream().filter(i -> i < configs.size()).mapToObj(configs::get).toList();
+            boolean pushed = failed.stream().allMatch(config -> config.getNetworkHandler().isPushedOnMismatch());
+
+            // When disconnecting, sent anyway so that the client can log which options differ
+            PacketByteBuf values = PacketByteBufs.create();
+            values.writeVarInt(failed.size());
+            for (ConfigBase config : failed) {
+                values.writeIdentifier(config.getIdentifier());
+                values.writeBoolean(pushed);
+                OptionCodec.writeOptions(values, config.getWriter().getSerializer().getStoredServerUserOptions());
+            }
+            responseSender.sendPacket(VALUES, values);
+
+            if (pushed) {
+                server.execute(() -> handler.completeTask(ConfigSyncTask.KEY));
+                LOGGER.info("Config mismatch for {}, pushed server values", failed.stream().map(ConfigBase::getIdentifier).toList());
+            } else {
+                handler.disconnect(Text.of("Config is mismatched between server and client!"));
+                LOGGER.warn("Config mismatch for {}, disconnecting", failed.stream().map(ConfigBase::getIdentifier).toList());
+            }
+        });
+    }
+
+    public static void registerClient() {
+        ClientConfigurationNetworking.registerGlobalReceiver(SYNC, (client, handler, buf, responseSender) -> {
+            int count = buf.readVarInt();
+            Map<Identifier, Long> hashes = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) hashes.put(buf.readIdentifier(), buf.readLong());
+
+            client.execute(() -> {
+                // An overlay left by a connection dropped before reaching play must not be compared against
+                clearOverlays();
+
+                BitSet mismatched = new BitSet(count);
+                int i = 0;
+                for (Map.Entry<Identifier, Long> entry : hashes.entrySet()) {
+                    ConfigBase config = ConfigBase.getConfig(entry.getKey());
+                    // TODO: account for user changing the option to desired but the option needs a restart: add a flag to options that turns on when a restart is needed and
+
+                    if (config == null) {
+                        LOGGER.warn("Server has the config {} which is missing on this client", entry.getKey());
+                        mismatched.set(i);
+                    } else if (entry.getValue() != config.getWriter().getSerializer().getStoredServerUserOptionsHash()) mismatched.set(i);
+                    i++;
                 }
+
+                responseSender.sendPacket(HANDSHAKE, PacketByteBufs.create().writeBitSet(mismatched));
             });
-        }
+        });
+
+        ClientConfigurationNetworking.registerGlobalReceiver(VALUES, (client, handler, buf, responseSender) -> {
+            int count = buf.readVarInt();
+
+            for (int i = 0; i < count; i++) {
+                Identifier identifier = buf.readIdentifier();
+                boolean pushed = buf.readBoolean();
+                Map<Integer, Object> values = OptionCodec.readOptions(buf);
+                ConfigBase config = ConfigBase.getConfig(identifier);
+                if (config == null) continue;
+
+                if (pushed) {
+                    client.execute(() -> {
+                        int applied = config.getNetworkHandler().getOverlay().apply(OptionCodec.resolve(config, values));
+                        LOGGER.info("Applied {} server option value(s) of {} for this session", applied, identifier);
+                    });
+                    continue;
+                }
+
+                OptionCodec.resolve(config, values).forEach((option, value) -> {
+                    if (!Objects.equals(option.getValue(), value))
+                        LOGGER.warn("Mismatched option \"{}\" of {}: server has {}, client has {}", option.getName(), identifier, value, option.getValue());
+                });
+            }
+        });
+
+        ClientPlayNetworking.registerGlobalReceiver(DELTA, (client, handler, buf, responseSender) -> {
+            int count = buf.readVarInt();
+
+            for (int i = 0; i < count; i++) {
+                Identifier identifier = buf.readIdentifier();
+                Map<Integer, Object> values = OptionCodec.readOptions(buf);
+                ConfigBase config = ConfigBase.getConfig(identifier);
+                // Only configs synced on both sides are owned by the server
+                if (config == null || !config.getNetworkHandler().isSynced()) {
+                    LOGGER.warn("Ignored option changes of {}, which isn't synced with the server on this client", identifier);
+                    continue;
+                }
+
+                client.execute(() -> {
+                    int applied = config.getNetworkHandler().getOverlay().apply(OptionCodec.resolve(config, values));
+                    LOGGER.debug("Applied {} of {} server option change(s) of {}", applied, values.size(), identifier);
+                });
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+package evergoodteam.chassis.config.networking;
+
+import evergoodteam.chassis.config.ConfigBase;
+import evergoodteam.chassis.config.option.AbstractOption;
+import evergoodteam.chassis.config.option.OptionStorage;
+
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static evergoodteam.chassis.util.Reference.CMI;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Session overlay of the option values pushed by a server. <p>
+ * Overlaid options take the server's value in memory, while their local value is remembered and is what gets written
+ * to the config file. The overlay is discarded on disconnect, restoring the local values.
+ */
+public class ConfigOverlay {
+
+    private static final Logger LOGGER = getLogger(CMI + "/C/Overlay");
+    private final ConfigBase config;
+    private final Map<AbstractOption<?>, Object> serverValues = new ConcurrentHashMap<>();
+    private final Map<AbstractOption<?>, String> localValues = new ConcurrentHashMap<>();
+
+    public ConfigOverlay(ConfigBase config) {
+        this.config = config;
+    }
+
+    public boolean isActive() {
+        return !serverValues.isEmpty();
+    }
+
+    public boolean isOverlaid(AbstractOption<?> option) {
+        return serverValues.containsKey(option);
+    }
+
+    /**
+     * Returns the value that should be persisted for the provided option: its local value if overlaid, otherwise its current one.
+     */
+    public String getLocalValue(AbstractOption<?> option) {
+        String local = localValues.get(option);
+        return local != null ? local : option.getValueAsString();
+    }
+
+    /**
+     * Assigns the provided server values to their options.
+     *
+     * @param values values {@link OptionCodec#resolve resolved} against this config's server options
+     * @return the number of options overlaid
+     */
+    public int apply(Map<AbstractOption<?>, Object> values) {
+        OptionStorage storage = config.getOptionStorage();
+        boolean clean = !storage.isUserDirty();
+        int applied = 0;
+        for (Map.Entry<AbstractOption<?>, Object> entry : values.entrySet()) {
+            AbstractOption<?> option = entry.getKey();
+            String local = option.getValueAsString();
+            try {
+                option.setValueFromObject(entry.getValue());
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to apply server value {} to option \"{}\" of {}", entry.getValue(), option.getName(), config.getIdentifier(), e);
+                continue;
+            }
+
+            localValues.putIfAbsent(option, local);
+            serverValues.put(option, entry.getValue());
+            applied++;
+        }
+
+        // Server values aren't written, so they don't count as unsaved changes
+        if (clean) storage.markClean(storage.getVersion());
+        return applied;
+    }
+
+    /**
+     * Assigns the server values again after options were read from the config file, taking the written values as their local value.
+     */
+    public void reapply(Map<String, String> written) {
+        serverValues.forEach((option, value) -> {
+            String local = written.get(option.getName());
+            if (local != null) localValues.put(option, local);
+            option.setValueFromObject(value);
+        });
+    }
+
+    /**
+     * Discards the overlay, restoring every overlaid option to its local value.
+     */
+    public void clear() {
+        if (!isActive()) return;
+
+        OptionStorage storage = config.getOptionStorage();
+        boolean clean = !storage.isUserDirty();
+
+        serverValues.clear();
+        localValues.forEach(AbstractOption::setValueFromString);
+        localValues.clear();
+        if (clean) storage.markClean(storage.getVersion());
+    }
+}
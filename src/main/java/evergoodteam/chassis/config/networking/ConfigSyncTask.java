@@ -0,0 +1,41 @@
+package evergoodteam.chassis.config.networking;
+
+import evergoodteam.chassis.config.ConfigBase;
+import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
+import net.fabricmc.fabric.api.networking.v1.ServerConfigurationNetworking;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.server.network.ServerPlayerConfigurationTask;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Configuration task sending the hashes of every synced config in a single packet, completed once the client answers
+ * with a matching result for all of them.
+ */
+public class ConfigSyncTask implements ServerPlayerConfigurationTask {
+
+    public static final Key KEY = new Key(ConfigNetworking.SYNC.toString());
+    private final List<ConfigBase> configs;
+
+    public ConfigSyncTask(List<ConfigBase> configs) {
+        this.configs = configs;
+    }
+
+    @Override
+    public void sendPacket(Consumer<Packet<?>> sender) {
+        PacketByteBuf buf = PacketByteBufs.create();
+        buf.writeVarInt(configs.size());
+        for (ConfigBase config : configs) {
+            buf.writeIdentifier(config.getIdentifier());
+            buf.writeLong(config.getWriter().getSerializer().getStoredServerUserOptionsHash());
+        }
+        sender.accept(ServerConfigurationNetworking.createS2CPacket(ConfigNetworking.SYNC, buf));
+    }
+
+    @Override
+    public Key getKey() {
+        return KEY;
+    }
+}
@@ -0,0 +1,139 @@
+package evergoodteam.chassis.config.networking;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import evergoodteam.chassis.config.ConfigBase;
+import evergoodteam.chassis.config.option.*;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.PacketByteBuf;
+import org.slf4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static evergoodteam.chassis.util.Reference.CMI;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Binary encoding of option values for config packets. <p>
+ * Options are identified by a 32-bit {@link #getId hash of their name}, which is the same on every side regardless of the
+ * order options were registered in, followed by a type tag and the value itself: a boolean, a VarInt, a double or a string.
+ * Received values are {@link #resolve resolved} against the server options of the receiving config before being used.
+ */
+public class OptionCodec {
+
+    private static final Logger LOGGER = getLogger(CMI + "/C/Codec");
+    private static final HashFunction ID_HASH = Hashing.murmur3_32_fixed();
+    private static final byte BOOLEAN = 0;
+    private static final byte INTEGER = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte STRING = 3;
+
+    /**
+     * Returns the network id of the option with the provided name.
+     */
+    public static int getId(String name) {
+        return ID_HASH.hashString(name, StandardCharsets.UTF_8).asInt();
+    }
+
+    public static void writeOptions(PacketByteBuf buf, Collection<? extends AbstractOption<?>> options) {
+        buf.writeVarInt(options.size());
+        for (AbstractOption<?> option : options) {
+            buf.writeInt(getId(option.getName()));
+            writeValue(buf, option);
+        }
+    }
+
+    /**
+     * Reads the values written by {@link #writeOptions}, keyed by {@link #getId id} in the order they were written.
+     */
+    public static Map<Integer, Object> readOptions(PacketByteBuf buf) {
+        int count = buf.readVarInt();
+        Map<Integer, Object> values = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            int id = buf.readInt();
+            values.put(id, readValue(buf));
+        }
+        return values;
+    }
+
+    /**
+     * Matches the provided values, keyed by id, to the server options of the provided config. Values are skipped if no server
+     * option has their id, if more than one does, if their type isn't the option's or if the option's schema rejects them,
+     * so that values of a mismatched config never land in config locks, client options or options of a different type.
+     *
+     * @return the valid values, keyed by option, in the order they were received
+     */
+    public static Map<AbstractOption<?>, Object> resolve(ConfigBase config, Map<Integer, Object> values) {
+        Map<Integer, AbstractOption<?>> byId = new HashMap<>();
+        Set<Integer> ambiguous = new HashSet<>();
+        for (AbstractOption<?> option : config.getWriter().getSerializer().getStoredServerUserOptions()) {
+            int id = getId(option.getName());
+            if (byId.putIfAbsent(id, option) != null) ambiguous.add(id);
+        }
+        byId.keySet().removeAll(ambiguous);
+
+        Map<AbstractOption<?>, Object> resolved = new LinkedHashMap<>(values.size() * 2);
+        int skipped = 0;
+        for (Map.Entry<Integer, Object> entry : values.entrySet()) {
+            AbstractOption<?> option = byId.get(entry.getKey());
+            Object value = entry.getValue();
+            if (option == null || getType(option) != getType(value) || !config.getSchema().accepts(option, String.valueOf(value))) {
+                skipped++;
+                continue;
+            }
+            resolved.put(option, value);
+        }
+
+        if (skipped > 0)
+            LOGGER.warn("Ignored {} server value(s) of {} not matching any server option of this client", skipped, config.getIdentifier());
+        return resolved;
+    }
+
+    public static void writeValue(PacketByteBuf buf, AbstractOption<?> option) {
+        if (option instanceof BoolOption bool) {
+            buf.writeByte(BOOLEAN);
+            buf.writeBoolean(bool.getAsBoolean());
+        } else if (option instanceof IntOption integer) {
+            buf.writeByte(INTEGER);
+            buf.writeVarInt(integer.getAsInt());
+        } else if (option instanceof DoubleOption dbl) {
+            buf.writeByte(DOUBLE);
+            buf.writeDouble(dbl.getAsDouble());
+        } else {
+            buf.writeByte(STRING);
+            buf.writeString(option.getValueAsString());
+        }
+    }
+
+    public static Object readValue(PacketByteBuf buf) {
+        byte type = buf.readByte();
+        return switch (type) {
+            case BOOLEAN -> buf.readBoolean();
+            case INTEGER -> buf.readVarInt();
+            case DOUBLE -> buf.readDouble();
+            case STRING -> buf.readString();
+            default -> throw new DecoderException("Unknown option value type " + type);
+        };
+    }
+
+    /**
+     * Returns the type tag the provided option's value is written with.
+     */
+    private static byte getType(AbstractOption<?> option) {
+        if (option instanceof BoolOption) return BOOLEAN;
+        if (option instanceof IntOption) return INTEGER;
+        if (option instanceof DoubleOption) return DOUBLE;
+        return STRING;
+    }
+
+    /**
+     * Returns the type tag of a value returned by {@link #readValue}.
+     */
+    private static byte getType(Object value) {
+        if (value instanceof Boolean) return BOOLEAN;
+        if (value instanceof Integer) return INTEGER;
+        if (value instanceof Double) return DOUBLE;
+        return STRING;
+    }
+}
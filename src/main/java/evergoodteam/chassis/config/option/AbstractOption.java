@@ -7,23 +7,42 @@ import evergoodteam.chassis.config.ConfigBase;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.text.Text;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Base class of every config option. <p>
+ * <b>Threading:</b> values are published through volatile fields, so any thread (e.g. server workers or chunk generation) can read
+ * the latest value without locking. Updates store the value and bump the update sequence while holding the option's monitor, then
+ * call the update callbacks after releasing it, so callbacks are free to update other options. Callbacks of an option are only ever
+ * run by one thread at a time and in update order: updates made while they run, e.g. from the config screen, the network handlers
+ * and hot-reloads, or by the callbacks themselves, are coalesced and delivered by that thread once they return. Callbacks therefore
+ * always end up seeing the latest value, but may skip intermediate ones, and may run after the update method returned.
+ */
 public abstract class AbstractOption<T> {
 
+    private static final OptionUpdateCallback<?>[] NO_CALLBACKS = new OptionUpdateCallback<?>[0];
     private EnvType envType = EnvType.CLIENT;
     private final String name;
     private final T defaultValue;
-    private T value;
-    private List<OptionUpdateCallback<T>> callbacks = new ArrayList<>();
+    private volatile T value;
+    @SuppressWarnings("unchecked")
+    private volatile OptionUpdateCallback<T>[] callbacks = (OptionUpdateCallback<T>[]) NO_CALLBACKS; // Copy-on-write, never contains null
     private String comment;
     private boolean commentHidden = false;
     private Boolean defaultCommentHidden = false;
     private Text displayName;
     private Text tooltip;
+    private OptionStorage storage;
+    private int slot = -1;
+    private volatile boolean lock = false;
+    private volatile long changedAt = 0;
+    private long published = 0; // Guarded by this
+    private long delivered = 0; // Guarded by this
+    private boolean dispatching = false; // Guarded by this
+    private boolean notifyPending = false; // Guarded by this
+    private T delivering; // Only accessed by the dispatching thread
 
     /**
      * Returns a new instance of this option's builder. This builder can either be the default {@link Builder} or one specified by the
@@ -52,10 +71,83 @@ public abstract class AbstractOption<T> {
         return name;
     }
 
+    /**
+     * Returns the index of this option inside its config's {@link ConfigSnapshot}, or -1 if the option hasn't been stored yet.
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    void bind(OptionStorage storage, int slot) {
+        this.storage = storage;
+        this.slot = slot;
+    }
+
+    void markClean() {
+        this.changedAt = 0;
+    }
+
+    void setLock() {
+        this.lock = true;
+    }
+
+    /**
+     * Returns {@code true} if this option belongs to the config or resource lock category, rather than being a user option.
+     */
+    boolean isLock() {
+        return lock;
+    }
+
+    /**
+     * Notifies the {@link OptionStorage} holding this option that its value changed. Must be called by every method updating the value.
+     */
+    protected final void markChanged() {
+        OptionStorage storage = this.storage;
+        if (storage != null) changedAt = storage.markChanged(this);
+    }
+
+    /**
+     * Notifies the {@link OptionStorage} holding this option that its constraints changed, e.g. its bounds, so that written
+     * values are validated against the new ones.
+     */
+    protected final void markDefinitionChanged() {
+        OptionStorage storage = this.storage;
+        if (storage != null) storage.markDefinitionChanged();
+    }
+
+    /**
+     * Returns {@code true} if this option changed after its config was last read from or written to the config file.
+     *
+     * @see OptionStorage#isUserDirty()
+     */
+    public boolean isDirty() {
+        OptionStorage storage = this.storage;
+        return storage != null && storage.isDirty(changedAt);
+    }
+
     public T getValue() {
         return value;
     }
 
+    /**
+     * Returns this option's value as written to config files and sent over the network, which {@link #setValueFromString} accepts.
+     */
+    public String getValueAsString() {
+        return valueToString(getValue());
+    }
+
+    public String getDefaultValueAsString() {
+        return valueToString(getDefaultValue());
+    }
+
+    /**
+     * Converts a value of this option to its string representation. Options whose values aren't plain booleans, numbers or strings
+     * override this to match {@link #setValueFromString}.
+     */
+    protected String valueToString(T value) {
+        return String.valueOf(value);
+    }
+
     public ImmutableCollection<T> getValues() {
         return ImmutableList.of(value);
     }
@@ -107,24 +199,124 @@ public abstract class AbstractOption<T> {
 
     /**
      * Sets this option's value and runs through the stored {@link AbstractOption#callbacks}, calling both normal ({@link OptionUpdateCallback#onUpdate})
-     * and generic ({@link OptionUpdateCallback#onAnyUpdate}) callback methods if the callback itself isn't null.
+     * and generic ({@link OptionUpdateCallback#onAnyUpdate}) callback methods. No allocation is done.
      */
     public void setValue(T newValue) {
-        this.value = newValue;
-
-        callbacks.stream().filter(Objects::nonNull).forEach(callback -> {
-            callback.onUpdate(newValue);
-            callback.onAnyUpdate(newValue);
-        });
+        synchronized (this) {
+            this.value = newValue;
+            if (!publish(true)) return;
+        }
+        dispatch();
     }
 
     /**
      * Sets this option's value and runs through the stored {@link AbstractOption#callbacks}, calling only the generic
-     * ({@link OptionUpdateCallback#onAnyUpdate}) callback method if the callback itself isn't null.
+     * ({@link OptionUpdateCallback#onAnyUpdate}) callback method. No allocation is done.
      */
     public void setValueSilently(T newValue) {
-        this.value = newValue;
-        callbacks.stream().filter(Objects::nonNull).forEach(callback -> callback.onAnyUpdate(newValue));
+        synchronized (this) {
+            this.value = newValue;
+            if (!publish(false)) return;
+        }
+        dispatch();
+    }
+
+    /**
+     * Records an update of the value that was just stored, which must be done while holding this option's monitor. Returns
+     * {@code true} if the calling thread must then call {@link #dispatch()}, once it released the monitor; otherwise the thread
+     * already dispatching will deliver the update.
+     *
+     * @param notify whether normal callback methods are called, i.e. the update isn't silent
+     */
+    protected final boolean publish(boolean notify) {
+        markChanged();
+        published++;
+        notifyPending |= notify;
+        if (dispatching) return false;
+
+        dispatching = true;
+        return true;
+    }
+
+    /**
+     * Delivers every published update to the callbacks, without holding this option's monitor, until none is left.
+     *
+     * @see #publish(boolean)
+     */
+    protected final void dispatch() {
+        boolean finished = false;
+        try {
+            while (true) {
+                boolean notify;
+                synchronized (this) {
+                    if (delivered == published) {
+                        dispatching = false;
+                        finished = true;
+                        return;
+                    }
+                    delivered = published;
+                    notify = notifyPending;
+                    notifyPending = false;
+                    captureValue();
+                }
+                deliver(notify);
+            }
+        } finally {
+            // A throwing callback mustn't stop later updates from being delivered
+            if (!finished) {
+                synchronized (this) {
+                    dispatching = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the current value for the next {@link #deliver} call. Called while holding this option's monitor, so that the delivered
+     * value is the one of the latest published update. Options keeping their value in their own fields must override both methods.
+     */
+    protected void captureValue() {
+        this.delivering = value;
+    }
+
+    /**
+     * Calls the callbacks with the value stored by {@link #captureValue()}, only the generic methods if {@code notify} is false.
+     */
+    protected void deliver(boolean notify) {
+        if (notify) notifyUpdate(delivering);
+        else notifyAnyUpdate(delivering);
+    }
+
+    /**
+     * Returns {@code true} if at least one {@link OptionUpdateCallback} was added, allowing subclasses to skip boxing values no one listens to.
+     */
+    protected final boolean hasUpdateCallbacks() {
+        return callbacks.length != 0;
+    }
+
+    /**
+     * Calls both normal and generic callback methods of the stored {@link AbstractOption#callbacks} with the provided value.
+     */
+    protected final void notifyUpdate(T newValue) {
+        OptionUpdateCallback<T>[] callbacks = this.callbacks;
+        if (callbacks.length == 0) return;
+
+        for (int i = 0; i < callbacks.length; i++) {
+            callbacks[i].onUpdate(newValue);
+            callbacks[i].onAnyUpdate(newValue);
+        }
+    }
+
+    /**
+     * Calls only the generic callback method of the stored {@link AbstractOption#callbacks} with the provided value.
+     */
+    protected final void notifyAnyUpdate(T newValue) {
+        OptionUpdateCallback<T>[] callbacks = this.callbacks;
+        if (callbacks.length == 0) return;
+
+        for (int i = 0; i < callbacks.length; i++) {
+            callbacks[i].onAnyUpdate(newValue);
+        }
     }
 
     /**
@@ -149,10 +341,14 @@ public abstract class AbstractOption<T> {
     }
 
     /**
-     * Adds the specified updateCallback to the {@link AbstractOption#callbacks stored list}.
+     * Adds the specified updateCallback to the {@link AbstractOption#callbacks stored array}, ignoring null callbacks.
      */
-    public void addUpdateCallback(OptionUpdateCallback<T> updateCallback) {
-        callbacks.add(updateCallback);
+    public synchronized void addUpdateCallback(OptionUpdateCallback<T> updateCallback) {
+        if (updateCallback == null) return;
+
+        OptionUpdateCallback<T>[] result = Arrays.copyOf(callbacks, callbacks.length + 1);
+        result[callbacks.length] = updateCallback;
+        this.callbacks = result;
     }
 
     /**
@@ -175,6 +371,15 @@ public abstract class AbstractOption<T> {
      */
     public abstract void setValueFromString(String newValue);
 
+    /**
+     * Sets this option's value from an object of the same type as its default value, otherwise from the object's string representation.
+     */
+    @SuppressWarnings("unchecked")
+    public void setValueFromObject(@Nullable Object newValue) {
+        if (newValue != null && getDefaultValue() != null && getDefaultValue().getClass().isInstance(newValue)) setValue((T) newValue);
+        else setValueFromString(newValue == null ? null : String.valueOf(newValue));
+    }
+
     public void hideComment(boolean bool) {
         this.commentHidden = bool;
     }
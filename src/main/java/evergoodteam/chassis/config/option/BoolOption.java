@@ -0,0 +1,32 @@
+package evergoodteam.chassis.config.option;
+
+/**
+ * Primitive view of an option holding {@code boolean} values, which can be read and updated without boxing.
+ * The generic {@link AbstractOption} methods remain available and are kept in sync.
+ */
+public interface BoolOption {
+
+    boolean getAsBoolean();
+
+    /**
+     * Sets this option's value, calling both the generic and the primitive update callbacks.
+     */
+    void setValue(boolean newValue);
+
+    void addBoolUpdateCallback(BoolUpdateCallback updateCallback);
+
+    interface BoolUpdateCallback {
+
+        /**
+         * Called everytime the option is updated through {@link AbstractOption#setValue(Object)} or {@link BoolOption#setValue(boolean)}.
+         */
+        default void onUpdate(boolean newValue) {
+        }
+
+        /**
+         * Called when the option is updated, including silent updates through {@link AbstractOption#setValueSilently(Object)}.
+         */
+        default void onAnyUpdate(boolean newValue) {
+        }
+    }
+}
@@ -10,10 +10,15 @@ import net.fabricmc.api.Environment;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.text.Text;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
-public class BooleanOption extends AbstractOption<Boolean> {
+public class BooleanOption extends AbstractOption<Boolean> implements BoolOption {
+
+    private volatile boolean booleanValue;
+    private boolean deliveringBoolean; // Only accessed by the dispatching thread
+    private volatile BoolUpdateCallback[] boolCallbacks = new BoolUpdateCallback[0];
 
     public BooleanOption(String name, Boolean defaultValue) {
         this(name, defaultValue, Text.literal(name), Text.empty());
@@ -30,6 +35,7 @@ public class BooleanOption extends AbstractOption<Boolean> {
 
     public BooleanOption(String name, Boolean defaultValue, Text displayName, Text tooltip) {
         super(name, defaultValue, displayName, tooltip);
+        this.booleanValue = defaultValue;
     }
 
     @Override
@@ -49,9 +55,84 @@ public class BooleanOption extends AbstractOption<Boolean> {
         return new BooleanConfigWidget(this, width);
     }
 
+    @Override
+    public boolean getAsBoolean() {
+        return booleanValue;
+    }
+
+    /**
+     * Returns the boxed value: prefer {@link #getAsBoolean()} on hot paths.
+     */
+    @Override
+    public Boolean getValue() {
+        return booleanValue;
+    }
+
+    /**
+     * Sets this option's value without boxing it, unless generic {@link OptionUpdateCallback}s were added.
+     */
+    @Override
+    public void setValue(boolean newValue) {
+        synchronized (this) {
+            this.booleanValue = newValue;
+            if (!publish(true)) return;
+        }
+        dispatch();
+    }
+
+    @Override
+    public void setValue(Boolean newValue) {
+        setValue(newValue.booleanValue());
+    }
+
+    @Override
+    public void setValueSilently(Boolean newValue) {
+        synchronized (this) {
+            this.booleanValue = newValue;
+            if (!publish(false)) return;
+        }
+        dispatch();
+    }
+
+    @Override
+    protected void captureValue() {
+        this.deliveringBoolean = booleanValue;
+    }
+
+    /**
+     * Boxes the value only if generic {@link OptionUpdateCallback}s were added.
+     */
+    @Override
+    protected void deliver(boolean notify) {
+        boolean value = this.deliveringBoolean;
+        if (hasUpdateCallbacks()) {
+            if (notify) notifyUpdate(value);
+            else notifyAnyUpdate(value);
+        }
+
+        for (BoolUpdateCallback callback : boolCallbacks) {
+            if (notify) callback.onUpdate(value);
+            callback.onAnyUpdate(value);
+        }
+    }
+
+    @Override
+    public boolean isDefaultValue() {
+        return booleanValue == getDefaultValue();
+    }
+
+    @Override
+    public synchronized void addBoolUpdateCallback(BoolUpdateCallback updateCallback) {
+        if (updateCallback == null) return;
+
+        BoolUpdateCallback[] result = Arrays.copyOf(boolCallbacks, boolCallbacks.length + 1);
+        result[boolCallbacks.length] = updateCallback;
+        this.boolCallbacks = result;
+    }
+
     @Override
     public void setValueFromString(String newValue) {
-        this.setValue(Boolean.valueOf(newValue));
+        this.setValue(Boolean.parseBoolean(newValue));
     }
 
     @Environment(value = net.fabricmc.api.EnvType.CLIENT)
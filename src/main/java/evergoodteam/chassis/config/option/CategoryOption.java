@@ -35,25 +35,43 @@ public class CategoryOption extends AbstractOption<String> {
      */
     public CategoryOption addBooleanOption(BooleanOption booleanOption) {
         config.getOptionStorage().storeBooleanOption(booleanOption);
-        options.add(booleanOption);
+        addOption(booleanOption);
         return this;
     }
 
     public CategoryOption addDoubleOption(DoubleSliderOption doubleOption) {
         config.getOptionStorage().storeDoubleOption(doubleOption);
-        options.add(doubleOption);
+        addOption(doubleOption);
         return this;
     }
 
     public CategoryOption addIntegerOption(IntegerSliderOption integerOption) {
         config.getOptionStorage().storeIntegerOption(integerOption);
-        options.add(integerOption);
+        addOption(integerOption);
         return this;
     }
 
     public CategoryOption addStringSetOption(StringSetOption stringSetOption) {
         config.getOptionStorage().storeStringSetOption(stringSetOption);
-        options.add(stringSetOption);
+        addOption(stringSetOption);
+        return this;
+    }
+
+    public CategoryOption addListOption(ListOption<?> listOption) {
+        config.getOptionStorage().storeListOption(listOption);
+        addOption(listOption);
+        return this;
+    }
+
+    public CategoryOption addMapOption(MapOption<?, ?> mapOption) {
+        config.getOptionStorage().storeMapOption(mapOption);
+        addOption(mapOption);
+        return this;
+    }
+
+    public CategoryOption addIdentifierSetOption(IdentifierSetOption identifierSetOption) {
+        config.getOptionStorage().storeIdentifierSetOption(identifierSetOption);
+        addOption(identifierSetOption);
         return this;
     }
 
@@ -76,6 +94,12 @@ public class CategoryOption extends AbstractOption<String> {
         return null;
     }
 
+    private void addOption(AbstractOption<?> option) {
+        // Resolved once, so that value changes don't need to look through the lock categories
+        if (isConfigLockCat() || isResourceLockCat()) option.setLock();
+        options.add(option);
+    }
+
     public boolean isConfigLockCat() {
         return this.equals(config.getOptionStorage().getConfigLockCat());
     }
@@ -0,0 +1,98 @@
+package evergoodteam.chassis.config.option;
+
+import java.util.List;
+
+/**
+ * Immutable view of every option value of a config at a given {@link #getVersion() version}. Values are stored in flat arrays
+ * indexed by each option's slot: resolve slots once through {@link OptionStorage#getSlot(String)} or {@link AbstractOption#getSlot()},
+ * then read any value in constant time without allocating.
+ *
+ * @see OptionStorage#getSnapshot()
+ */
+public final class ConfigSnapshot {
+
+    private static final byte INT = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte BOOLEAN = 3;
+    private final long version;
+    private final byte[] kinds;
+    private final long[] primitives;
+    private final Object[] values;
+
+    private ConfigSnapshot(long version, byte[] kinds, long[] primitives, Object[] values) {
+        this.version = version;
+        this.kinds = kinds;
+        this.primitives = primitives;
+        this.values = values;
+    }
+
+    static ConfigSnapshot of(List<AbstractOption<?>> options, long version) {
+        byte[] kinds = new byte[options.size()];
+        long[] primitives = new long[options.size()];
+        Object[] values = new Object[options.size()];
+
+        for (int i = 0; i < options.size(); i++) {
+            AbstractOption<?> option = options.get(i);
+            if (option instanceof IntOption intOption) {
+                kinds[i] = INT;
+                primitives[i] = intOption.getAsInt();
+            } else if (option instanceof DoubleOption doubleOption) {
+                kinds[i] = DOUBLE;
+                primitives[i] = Double.doubleToRawLongBits(doubleOption.getAsDouble());
+            } else if (option instanceof BoolOption boolOption) {
+                kinds[i] = BOOLEAN;
+                primitives[i] = boolOption.getAsBoolean() ? 1 : 0;
+            }
+            values[i] = option.getValue();
+        }
+
+        return new ConfigSnapshot(version, kinds, primitives, values);
+    }
+
+    /**
+     * Returns the {@link OptionStorage#getVersion() storage version} this snapshot was built from: if it differs from the current
+     * one, the snapshot is outdated.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the option at the provided slot isn't an {@link IntOption}
+     */
+    public int getInt(int slot) {
+        checkKind(slot, INT, "int");
+        return (int) primitives[slot];
+    }
+
+    /**
+     * @throws IllegalArgumentException if the option at the provided slot isn't a {@link DoubleOption}
+     */
+    public double getDouble(int slot) {
+        checkKind(slot, DOUBLE, "double");
+        return Double.longBitsToDouble(primitives[slot]);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the option at the provided slot isn't a {@link BoolOption}
+     */
+    public boolean getBoolean(int slot) {
+        checkKind(slot, BOOLEAN, "boolean");
+        return primitives[slot] != 0;
+    }
+
+    private void checkKind(int slot, byte kind, String type) {
+        if (kinds[slot] != kind) throw new IllegalArgumentException("The option at slot %s doesn't hold %s values".formatted(slot, type));
+    }
+
+    /**
+     * Returns the value of the option at the provided slot, boxed for numeric and boolean options.
+     */
+    public Object get(int slot) {
+        return values[slot];
+    }
+}
@@ -0,0 +1,32 @@
+package evergoodteam.chassis.config.option;
+
+/**
+ * Primitive view of an option holding {@code double} values, which can be read and updated without boxing.
+ * The generic {@link AbstractOption} methods remain available and are kept in sync.
+ */
+public interface DoubleOption {
+
+    double getAsDouble();
+
+    /**
+     * Sets this option's value, calling both the generic and the primitive update callbacks.
+     */
+    void setValue(double newValue);
+
+    void addDoubleUpdateCallback(DoubleUpdateCallback updateCallback);
+
+    interface DoubleUpdateCallback {
+
+        /**
+         * Called everytime the option is updated through {@link AbstractOption#setValue(Object)} or {@link DoubleOption#setValue(double)}.
+         */
+        default void onUpdate(double newValue) {
+        }
+
+        /**
+         * Called when the option is updated, including silent updates through {@link AbstractOption#setValueSilently(Object)}.
+         */
+        default void onAnyUpdate(double newValue) {
+        }
+    }
+}
@@ -10,10 +10,14 @@ import net.fabricmc.api.Environment;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.text.Text;
 
+import java.util.Arrays;
 import java.util.Optional;
 
-public class DoubleSliderOption extends AbstractOption<Double> implements AbstractOption.Interval<Double> {
+public class DoubleSliderOption extends AbstractOption<Double> implements AbstractOption.Interval<Double>, DoubleOption {
 
+    private volatile double doubleValue;
+    private double deliveringDouble; // Only accessed by the dispatching thread
+    private volatile DoubleUpdateCallback[] doubleCallbacks = new DoubleUpdateCallback[0];
     private Double min;
     private Double max;
 
@@ -27,6 +31,7 @@ public class DoubleSliderOption extends AbstractOption<Double> implements Abstra
 
     public DoubleSliderOption(String name, double min, double max, double defaultValue, Text displayName, Text tooltip) {
         super(name, defaultValue, displayName, tooltip);
+        this.doubleValue = defaultValue;
         this.min = min;
         this.max = max;
     }
@@ -44,11 +49,13 @@ public class DoubleSliderOption extends AbstractOption<Double> implements Abstra
     @Override
     public void setMin(Double min) {
         this.min = min;
+        markDefinitionChanged();
     }
 
     @Override
     public void setMax(Double max) {
         this.max = max;
+        markDefinitionChanged();
     }
 
     @Override
@@ -73,9 +80,84 @@ public class DoubleSliderOption extends AbstractOption<Double> implements Abstra
         return new DoubleConfigSlider(this, width);
     }
 
+    @Override
+    public double getAsDouble() {
+        return doubleValue;
+    }
+
+    /**
+     * Returns the boxed value: prefer {@link #getAsDouble()} on hot paths.
+     */
+    @Override
+    public Double getValue() {
+        return doubleValue;
+    }
+
+    /**
+     * Sets this option's value without boxing it, unless generic {@link OptionUpdateCallback}s were added.
+     */
+    @Override
+    public void setValue(double newValue) {
+        synchronized (this) {
+            this.doubleValue = newValue;
+            if (!publish(true)) return;
+        }
+        dispatch();
+    }
+
+    @Override
+    public void setValue(Double newValue) {
+        setValue(newValue.doubleValue());
+    }
+
+    @Override
+    public void setValueSilently(Double newValue) {
+        synchronized (this) {
+            this.doubleValue = newValue;
+            if (!publish(false)) return;
+        }
+        dispatch();
+    }
+
+    @Override
+    protected void captureValue() {
+        this.deliveringDouble = doubleValue;
+    }
+
+    /**
+     * Boxes the value only if generic {@link OptionUpdateCallback}s were added.
+     */
+    @Override
+    protected void deliver(boolean notify) {
+        double value = this.deliveringDouble;
+        if (hasUpdateCallbacks()) {
+            if (notify) notifyUpdate(value);
+            else notifyAnyUpdate(value);
+        }
+
+        for (DoubleUpdateCallback callback : doubleCallbacks) {
+            if (notify) callback.onUpdate(value);
+            callback.onAnyUpdate(value);
+        }
+    }
+
+    @Override
+    public boolean isDefaultValue() {
+        return Double.compare(doubleValue, getDefaultValue()) == 0;
+    }
+
+    @Override
+    public synchronized void addDoubleUpdateCallback(DoubleUpdateCallback updateCallback) {
+        if (updateCallback == null) return;
+
+        DoubleUpdateCallback[] result = Arrays.copyOf(doubleCallbacks, doubleCallbacks.length + 1);
+        result[doubleCallbacks.length] = updateCallback;
+        this.doubleCallbacks = result;
+    }
+
     @Override
     public void setValueFromString(String newValue) {
-        this.setValue(Double.valueOf(newValue));
+        this.setValue(Double.parseDouble(newValue));
     }
 
     @Environment(value = EnvType.CLIENT)
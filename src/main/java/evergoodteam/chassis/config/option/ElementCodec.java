@@ -0,0 +1,50 @@
+package evergoodteam.chassis.config.option;
+
+import net.minecraft.util.Identifier;
+
+import java.util.function.Function;
+
+/**
+ * Converts the elements of {@link ListOption}s and the keys and values of {@link MapOption}s from and to strings.
+ */
+public interface ElementCodec<T> {
+
+    ElementCodec<String> STRING = of(Function.identity(), Function.identity());
+    ElementCodec<Integer> INTEGER = of(Integer::valueOf, String::valueOf);
+    ElementCodec<Double> DOUBLE = of(Double::valueOf, String::valueOf);
+    ElementCodec<Boolean> BOOLEAN = of(ElementCodec::parseBoolean, String::valueOf);
+    ElementCodec<Identifier> IDENTIFIER = of(ElementCodec::parseIdentifier, Identifier::toString);
+
+    /**
+     * Parses the provided string, throwing an {@link IllegalArgumentException} if it's malformed.
+     */
+    T parse(String string);
+
+    String format(T value);
+
+    static <T> ElementCodec<T> of(Function<String, T> parser, Function<T, String> formatter) {
+        return new ElementCodec<>() {
+            @Override
+            public T parse(String string) {
+                return parser.apply(string);
+            }
+
+            @Override
+            public String format(T value) {
+                return formatter.apply(value);
+            }
+        };
+    }
+
+    private static Boolean parseBoolean(String string) {
+        if ("true".equalsIgnoreCase(string)) return Boolean.TRUE;
+        if ("false".equalsIgnoreCase(string)) return Boolean.FALSE;
+        throw new IllegalArgumentException("Not a boolean: " + string);
+    }
+
+    private static Identifier parseIdentifier(String string) {
+        Identifier identifier = Identifier.tryParse(string);
+        if (identifier == null) throw new IllegalArgumentException("Not an identifier: " + string);
+        return IdentifierSet.intern(identifier);
+    }
+}
@@ -0,0 +1,120 @@
+package evergoodteam.chassis.config.option;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Iterators;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Immutable set of {@link Identifier}s, meant for lookups done on hot paths such as block or dimension checks. <p>
+ * Identifiers are interned and kept in a sorted array, iterated in their natural order, with an open addressing table of their
+ * indices on top: {@link #contains(Identifier)} hashes once and usually finds the identifier by reference on the first probe,
+ * without allocating.
+ */
+public final class IdentifierSet extends AbstractSet<Identifier> {
+
+    private static final Interner<Identifier> INTERNER = Interners.newWeakInterner();
+    public static final IdentifierSet EMPTY = new IdentifierSet(new Identifier[0]);
+    private final Identifier[] identifiers;
+    private final int[] table; // Index + 1 of the identifier in each bucket, 0 for empty buckets
+    private final int mask;
+    private int hash;
+
+    private IdentifierSet(Identifier[] identifiers) {
+        this.identifiers = identifiers;
+        // Keeps the load factor at or below 0.5, so probes stay short
+        this.table = new int[Integer.highestOneBit(Math.max(2, identifiers.length * 2) - 1) << 1];
+        this.mask = table.length - 1;
+
+        for (int i = 0; i < identifiers.length; i++) {
+            int bucket = bucket(identifiers[i]);
+            while (table[bucket] != 0) bucket = (bucket + 1) & mask;
+            table[bucket] = i + 1;
+        }
+    }
+
+    public static IdentifierSet of(Identifier... identifiers) {
+        return copyOf(Arrays.asList(identifiers));
+    }
+
+    public static IdentifierSet copyOf(Collection<Identifier> identifiers) {
+        if (identifiers instanceof IdentifierSet set) return set;
+        if (identifiers.isEmpty()) return EMPTY;
+
+        Identifier[] sorted = identifiers.toArray(new Identifier[0]);
+        Arrays.sort(sorted);
+
+        int size = 0;
+        for (Identifier identifier : sorted) {
+            if (size == 0 || !sorted[size - 1].equals(identifier)) sorted[size++] = intern(identifier);
+        }
+        return new IdentifierSet(size == sorted.length ? sorted : Arrays.copyOf(sorted, size));
+    }
+
+    /**
+     * Returns the canonical instance of the provided identifier, shared by every set.
+     */
+    public static Identifier intern(Identifier identifier) {
+        return INTERNER.intern(identifier);
+    }
+
+    private int bucket(Identifier identifier) {
+        int h = identifier.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public boolean contains(Identifier identifier) {
+        if (identifier == null) return false;
+
+        int bucket = bucket(identifier);
+        int index;
+        while ((index = table[bucket]) != 0) {
+            Identifier current = identifiers[index - 1];
+            if (current == identifier || current.equals(identifier)) return true;
+            bucket = (bucket + 1) & mask;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Identifier identifier && contains(identifier);
+    }
+
+    /**
+     * Returns the identifier at the provided index, in natural order.
+     */
+    public Identifier get(int index) {
+        return identifiers[index];
+    }
+
+    @Override
+    public int size() {
+        return identifiers.length;
+    }
+
+    @Override
+    public @NotNull Iterator<Identifier> iterator() {
+        return Iterators.forArray(identifiers);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o instanceof IdentifierSet other) return Arrays.equals(identifiers, other.identifiers);
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && identifiers.length != 0) hash = h = super.hashCode();
+        return h;
+    }
+}
@@ -0,0 +1,52 @@
+package evergoodteam.chassis.config.option;
+
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+
+import java.util.Collection;
+
+/**
+ * Option holding a set of identifiers, e.g. blocks or dimensions, written as {@code minecraft:stone, minecraft:dirt}. <p>
+ * The value is an {@link IdentifierSet}, so checking {@link #contains(Identifier)} is a single hash lookup however large the set is.
+ */
+public class IdentifierSetOption extends ParsedOption<IdentifierSet> {
+
+    public IdentifierSetOption(String name, Collection<Identifier> defaultValue) {
+        this(name, defaultValue, Text.literal(name), Text.empty());
+    }
+
+    public IdentifierSetOption(String name, Collection<Identifier> defaultValue, Text displayName) {
+        this(name, defaultValue, displayName, Text.empty());
+    }
+
+    public IdentifierSetOption(String name, Collection<Identifier> defaultValue, Text displayName, Text tooltip) {
+        super(name, IdentifierSet.copyOf(defaultValue), displayName, tooltip);
+    }
+
+    @Override
+    public Builder<IdentifierSet, ? extends IdentifierSetOption> getBuilder() {
+        return new Builder<>(this);
+    }
+
+    public boolean contains(Identifier identifier) {
+        return getValue().contains(identifier);
+    }
+
+    @Override
+    public IdentifierSet parse(String string) {
+        Identifier[] identifiers = split(string, SEPARATOR).stream()
+                .map(element -> ElementCodec.IDENTIFIER.parse(unescape(element)))
+                .toArray(Identifier[]::new);
+        return IdentifierSet.of(identifiers);
+    }
+
+    @Override
+    protected String valueToString(IdentifierSet value) {
+        StringBuilder builder = new StringBuilder();
+        for (Identifier identifier : value) {
+            if (!builder.isEmpty()) builder.append(SEPARATOR).append(' ');
+            builder.append(identifier);
+        }
+        return builder.toString();
+    }
+}
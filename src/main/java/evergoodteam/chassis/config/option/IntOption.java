@@ -0,0 +1,32 @@
+package evergoodteam.chassis.config.option;
+
+/**
+ * Primitive view of an option holding {@code int} values, which can be read and updated without boxing.
+ * The generic {@link AbstractOption} methods remain available and are kept in sync.
+ */
+public interface IntOption {
+
+    int getAsInt();
+
+    /**
+     * Sets this option's value, calling both the generic and the primitive update callbacks.
+     */
+    void setValue(int newValue);
+
+    void addIntUpdateCallback(IntUpdateCallback updateCallback);
+
+    interface IntUpdateCallback {
+
+        /**
+         * Called everytime the option is updated through {@link AbstractOption#setValue(Object)} or {@link IntOption#setValue(int)}.
+         */
+        default void onUpdate(int newValue) {
+        }
+
+        /**
+         * Called when the option is updated, including silent updates through {@link AbstractOption#setValueSilently(Object)}.
+         */
+        default void onAnyUpdate(int newValue) {
+        }
+    }
+}
@@ -11,10 +11,14 @@ import net.minecraft.client.gui.DrawContext;
 import net.minecraft.text.Text;
 import net.minecraft.util.math.MathHelper;
 
+import java.util.Arrays;
 import java.util.Optional;
 
-public class IntegerSliderOption extends AbstractOption<Integer> implements AbstractOption.Interval<Integer> {
+public class IntegerSliderOption extends AbstractOption<Integer> implements AbstractOption.Interval<Integer>, IntOption {
 
+    private volatile int intValue;
+    private int deliveringInteger; // Only accessed by the dispatching thread
+    private volatile IntUpdateCallback[] intCallbacks = new IntUpdateCallback[0];
     private Integer min;
     private Integer max;
 
@@ -28,6 +32,7 @@ public class IntegerSliderOption extends AbstractOption<Integer> implements Abst
 
     public IntegerSliderOption(String name, int min, int max, int defaultValue, Text displayName, Text tooltip) {
         super(name, defaultValue, displayName, tooltip);
+        this.intValue = defaultValue;
         this.min = min;
         this.max = max;
     }
@@ -45,11 +50,13 @@ public class IntegerSliderOption extends AbstractOption<Integer> implements Abst
     @Override
     public void setMin(Integer min) {
         this.min = min;
+        markDefinitionChanged();
     }
 
     @Override
     public void setMax(Integer max) {
         this.max = max;
+        markDefinitionChanged();
     }
 
     @Override
@@ -74,9 +81,84 @@ public class IntegerSliderOption extends AbstractOption<Integer> implements Abst
         return new IntConfigSlider(this, width);
     }
 
+    @Override
+    public int getAsInt() {
+        return intValue;
+    }
+
+    /**
+     * Returns the boxed value: prefer {@link #getAsInt()} on hot paths.
+     */
+    @Override
+    public Integer getValue() {
+        return intValue;
+    }
+
+    /**
+     * Sets this option's value without boxing it, unless generic {@link OptionUpdateCallback}s were added.
+     */
+    @Override
+    public void setValue(int newValue) {
+        synchronized (this) {
+            this.intValue = newValue;
+            if (!publish(true)) return;
+        }
+        dispatch();
+    }
+
+    @Override
+    public void setValue(Integer newValue) {
+        setValue(newValue.intValue());
+    }
+
+    @Override
+    public void setValueSilently(Integer newValue) {
+        synchronized (this) {
+            this.intValue = newValue;
+            if (!publish(false)) return;
+        }
+        dispatch();
+    }
+
+    @Override
+    protected void captureValue() {
+        this.deliveringInteger = intValue;
+    }
+
+    /**
+     * Boxes the value only if generic {@link OptionUpdateCallback}s were added.
+     */
+    @Override
+    protected void deliver(boolean notify) {
+        int value = this.deliveringInteger;
+        if (hasUpdateCallbacks()) {
+            if (notify) notifyUpdate(value);
+            else notifyAnyUpdate(value);
+        }
+
+        for (IntUpdateCallback callback : intCallbacks) {
+            if (notify) callback.onUpdate(value);
+            callback.onAnyUpdate(value);
+        }
+    }
+
+    @Override
+    public boolean isDefaultValue() {
+        return intValue == getDefaultValue();
+    }
+
+    @Override
+    public synchronized void addIntUpdateCallback(IntUpdateCallback updateCallback) {
+        if (updateCallback == null) return;
+
+        IntUpdateCallback[] result = Arrays.copyOf(intCallbacks, intCallbacks.length + 1);
+        result[intCallbacks.length] = updateCallback;
+        this.intCallbacks = result;
+    }
+
     @Override
     public void setValueFromString(String newValue) {
-        this.setValue(Integer.valueOf(newValue));
+        this.setValue(Integer.parseInt(newValue));
     }
 
     @Environment(value = EnvType.CLIENT)
@@ -0,0 +1,79 @@
+package evergoodteam.chassis.config.option;
+
+import com.google.common.collect.ImmutableList;
+import net.minecraft.text.Text;
+
+import java.util.List;
+
+/**
+ * Option holding an ordered list of elements, written as {@code a, b, c}.
+ *
+ * @see ElementCodec
+ */
+public class ListOption<T> extends ParsedOption<List<T>> {
+
+    private final ElementCodec<T> codec;
+
+    public ListOption(String name, List<T> defaultValue, ElementCodec<T> codec) {
+        this(name, defaultValue, codec, Text.literal(name), Text.empty());
+    }
+
+    public ListOption(String name, List<T> defaultValue, ElementCodec<T> codec, Text displayName) {
+        this(name, defaultValue, codec, displayName, Text.empty());
+    }
+
+    public ListOption(String name, List<T> defaultValue, ElementCodec<T> codec, Text displayName, Text tooltip) {
+        super(name, ImmutableList.copyOf(defaultValue), displayName, tooltip);
+        this.codec = codec;
+    }
+
+    @Override
+    public Builder<List<T>, ? extends ListOption<T>> getBuilder() {
+        return new Builder<>(this);
+    }
+
+    public ElementCodec<T> getCodec() {
+        return codec;
+    }
+
+    /**
+     * Returns the element at the provided index of the current list.
+     */
+    public T get(int index) {
+        return getValue().get(index);
+    }
+
+    public boolean contains(T element) {
+        return getValue().contains(element);
+    }
+
+    /**
+     * Stores an immutable copy of the provided list.
+     */
+    @Override
+    public void setValue(List<T> newValue) {
+        super.setValue(ImmutableList.copyOf(newValue));
+    }
+
+    @Override
+    public void setValueSilently(List<T> newValue) {
+        super.setValueSilently(ImmutableList.copyOf(newValue));
+    }
+
+    @Override
+    public List<T> parse(String string) {
+        ImmutableList.Builder<T> builder = ImmutableList.builder();
+        for (String element : split(string, SEPARATOR)) builder.add(codec.parse(unescape(element)));
+        return builder.build();
+    }
+
+    @Override
+    protected String valueToString(List<T> value) {
+        StringBuilder builder = new StringBuilder();
+        for (T element : value) {
+            if (!builder.isEmpty()) builder.append(SEPARATOR).append(' ');
+            builder.append(escape(codec.format(element)));
+        }
+        return builder.toString();
+    }
+}
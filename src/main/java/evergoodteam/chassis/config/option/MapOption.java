@@ -0,0 +1,94 @@
+package evergoodteam.chassis.config.option;
+
+import com.google.common.collect.ImmutableMap;
+import net.minecraft.text.Text;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+/**
+ * Option holding a table of keys mapped to values, written as {@code a = 1, b = 2} and kept in the written order.
+ *
+ * @see ElementCodec
+ */
+public class MapOption<K, V> extends ParsedOption<Map<K, V>> {
+
+    private final ElementCodec<K> keyCodec;
+    private final ElementCodec<V> valueCodec;
+
+    public MapOption(String name, Map<K, V> defaultValue, ElementCodec<K> keyCodec, ElementCodec<V> valueCodec) {
+        this(name, defaultValue, keyCodec, valueCodec, Text.literal(name), Text.empty());
+    }
+
+    public MapOption(String name, Map<K, V> defaultValue, ElementCodec<K> keyCodec, ElementCodec<V> valueCodec, Text displayName) {
+        this(name, defaultValue, keyCodec, valueCodec, displayName, Text.empty());
+    }
+
+    public MapOption(String name, Map<K, V> defaultValue, ElementCodec<K> keyCodec, ElementCodec<V> valueCodec, Text displayName, Text tooltip) {
+        super(name, ImmutableMap.copyOf(defaultValue), displayName, tooltip);
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+    }
+
+    @Override
+    public Builder<Map<K, V>, ? extends MapOption<K, V>> getBuilder() {
+        return new Builder<>(this);
+    }
+
+    public ElementCodec<K> getKeyCodec() {
+        return keyCodec;
+    }
+
+    public ElementCodec<V> getValueCodec() {
+        return valueCodec;
+    }
+
+    public @Nullable V get(K key) {
+        return getValue().get(key);
+    }
+
+    public V getOrDefault(K key, V defaultValue) {
+        return getValue().getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * Stores an immutable copy of the provided map.
+     */
+    @Override
+    public void setValue(Map<K, V> newValue) {
+        super.setValue(ImmutableMap.copyOf(newValue));
+    }
+
+    @Override
+    public void setValueSilently(Map<K, V> newValue) {
+        super.setValueSilently(ImmutableMap.copyOf(newValue));
+    }
+
+    /**
+     * Parses the provided entries, where the last one wins if a key is repeated.
+     */
+    @Override
+    public Map<K, V> parse(String string) {
+        ImmutableMap.Builder<K, V> builder = ImmutableMap.builder();
+        for (String entry : split(string, SEPARATOR)) {
+            int assignment = indexOfUnescaped(entry, ASSIGNMENT);
+            if (assignment < 0) throw new IllegalArgumentException("Missing '%s' in entry: %s".formatted(ASSIGNMENT, entry));
+
+            K key = keyCodec.parse(unescape(entry.substring(0, assignment).trim()));
+            V value = valueCodec.parse(unescape(entry.substring(assignment + 1).trim()));
+            builder.put(key, value);
+        }
+        return builder.buildKeepingLast();
+    }
+
+    @Override
+    protected String valueToString(Map<K, V> value) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<K, V> entry : value.entrySet()) {
+            if (!builder.isEmpty()) builder.append(SEPARATOR).append(' ');
+            builder.append(escape(keyCodec.format(entry.getKey()))).append(' ').append(ASSIGNMENT).append(' ')
+                    .append(escape(valueCodec.format(entry.getValue())));
+        }
+        return builder.toString();
+    }
+}
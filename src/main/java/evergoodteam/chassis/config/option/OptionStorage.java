@@ -7,7 +7,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static evergoodteam.chassis.util.Reference.CMI;
 
@@ -18,12 +21,20 @@ public class OptionStorage {
     private final CategoryOption configLock;
     private final CategoryOption resourceLock;
     private final CategoryOption generic;
-    private final List<String> keys = new ArrayList<>();
+    private final Map<String, AbstractOption<?>> index = new HashMap<>();
     private final OptionList<AbstractOption<?>> properties = new OptionList<>(this);
     private final OptionList<BooleanOption> booleanOptions = new OptionList<>(this);
     private final OptionList<IntegerSliderOption> integerOptions = new OptionList<>(this);
     private final OptionList<DoubleSliderOption> doubleOptions = new OptionList<>(this);
     private final OptionList<StringSetOption> stringSetOptions = new OptionList<>(this);
+    private final OptionList<ListOption<?>> listOptions = new OptionList<>(this);
+    private final OptionList<MapOption<?, ?>> mapOptions = new OptionList<>(this);
+    private final OptionList<IdentifierSetOption> identifierSetOptions = new OptionList<>(this);
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong userVersion = new AtomicLong();
+    private final AtomicLong cleanVersion = new AtomicLong();
+    private final AtomicLong definitionVersion = new AtomicLong();
+    private volatile ConfigSnapshot snapshot;
 
     public OptionStorage(ConfigBase config) {
         this.generic = new CategoryOption(config, "generic", "").getBuilder().hideComment(true).build();
@@ -75,8 +86,124 @@ public class OptionStorage {
         stringSetOptions.store(option);
     }
 
+    public void storeListOption(ListOption<?> option) {
+        listOptions.store(option);
+    }
+
+    public void storeMapOption(MapOption<?, ?> option) {
+        mapOptions.store(option);
+    }
+
+    public void storeIdentifierSetOption(IdentifierSetOption option) {
+        identifierSetOptions.store(option);
+    }
+
     public @Nullable AbstractOption<?> getOption(String name) {
-        return getOptions().stream().filter(option -> option.getName().equals(name)).findFirst().orElse(null);
+        return index.get(name);
+    }
+
+    /**
+     * Returns the option bound to the provided {@link ConfigSnapshot} slot, or null if there's no such slot.
+     */
+    public @Nullable AbstractOption<?> getOption(int slot) {
+        List<AbstractOption<?>> options = getOptions();
+        return slot >= 0 && slot < options.size() ? options.get(slot) : null;
+    }
+
+    public boolean hasOption(String name) {
+        return index.containsKey(name);
+    }
+
+    /**
+     * Returns the {@link ConfigSnapshot} slot of the option with the provided name, or -1 if there's no such option.
+     * Slots never change once assigned, so they can be resolved once and reused.
+     */
+    public int getSlot(String name) {
+        AbstractOption<?> option = index.get(name);
+        return option == null ? -1 : option.getSlot();
+    }
+
+    /**
+     * Returns the modification counter of this storage, incremented everytime a stored option's value changes.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns an immutable snapshot of every stored option's value. The snapshot is cached and only rebuilt after an option changes.
+     */
+    public ConfigSnapshot getSnapshot() {
+        ConfigSnapshot current = this.snapshot;
+        if (current != null && current.getVersion() == version.get()) return current;
+
+        synchronized (this) {
+            while (true) {
+                current = this.snapshot;
+                long expected = version.get();
+                if (current != null && current.getVersion() == expected) return current;
+
+                current = ConfigSnapshot.of(getOptions(), expected);
+                // Options changed while copying would leave values of a later version in the snapshot
+                if (version.get() != expected) continue;
+
+                this.snapshot = current;
+                return current;
+            }
+        }
+    }
+
+    void markChanged() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Returns the counter of changes to the stored options themselves, incremented everytime an option is stored or the
+     * constraints of a stored option, such as its bounds, change.
+     */
+    public long getDefinitionVersion() {
+        return definitionVersion.get();
+    }
+
+    void markDefinitionChanged() {
+        definitionVersion.incrementAndGet();
+    }
+
+    /**
+     * Increments the version for a change of the provided option, returning the new version.
+     */
+    long markChanged(AbstractOption<?> option) {
+        long changed = version.incrementAndGet();
+        if (!option.isLock())
+            userVersion.accumulateAndGet(changed, Math::max);
+        return changed;
+    }
+
+    /**
+     * Marks every change up to the provided version as persisted, i.e. stored values match the written ones as of that version.
+     * Called after a successful read or write of the config file.
+     */
+    public void markClean(long version) {
+        cleanVersion.accumulateAndGet(version, Math::max);
+    }
+
+    /**
+     * Marks only the provided option as persisted, for when its value was read from the config file while other options still have
+     * unsaved changes.
+     */
+    public void markClean(AbstractOption<?> option) {
+        option.markClean();
+    }
+
+    /**
+     * Returns {@code true} if any user option changed since the config file was last read or written, in constant time.
+     */
+    public boolean isUserDirty() {
+        return userVersion.get() > cleanVersion.get();
+    }
+
+    boolean isDirty(long changedAt) {
+        return changedAt > cleanVersion.get();
     }
 
     public BooleanOption getBooleanOption(String name) {
@@ -95,6 +222,18 @@ public class OptionStorage {
         return stringSetOptions.get(name);
     }
 
+    public ListOption<?> getListOption(String name) {
+        return listOptions.get(name);
+    }
+
+    public MapOption<?, ?> getMapOption(String name) {
+        return mapOptions.get(name);
+    }
+
+    public IdentifierSetOption getIdentifierSetOption(String name) {
+        return identifierSetOptions.get(name);
+    }
+
     public List<AbstractOption<?>> getOptions() {
         return properties.list;
     }
@@ -115,26 +254,49 @@ public class OptionStorage {
         return stringSetOptions.list;
     }
 
+    public List<ListOption<?>> getListOptions() {
+        return listOptions.list;
+    }
+
+    public List<MapOption<?, ?>> getMapOptions() {
+        return mapOptions.list;
+    }
+
+    public List<IdentifierSetOption> getIdentifierSetOptions() {
+        return identifierSetOptions.list;
+    }
+
+    /**
+     * Typed view over the stored options: keeps insertion order for serialization and a name index for lookups.
+     */
     private static class OptionList<T extends AbstractOption<?>> {
 
-        private OptionStorage storage;
-        private List<T> list = new ArrayList<>();
+        private final OptionStorage storage;
+        private final List<T> list = new ArrayList<>();
+        private final Map<String, T> byName = new HashMap<>();
 
         public OptionList(OptionStorage storage) {
             this.storage = storage;
         }
 
         public void store(T option) {
-            if (!storage.keys.contains(option.getName())) {
-                storage.keys.add(option.getName());
-                storage.properties.list.add(option);
-                list.add(option);
+            if (storage.index.putIfAbsent(option.getName(), option) == null) {
+                option.bind(storage, storage.properties.list.size());
+                storage.properties.add(option);
+                storage.markChanged();
+                storage.markDefinitionChanged();
+                add(option);
             } else
                 LOGGER.error("The option \"{}\" will be ignored because an option with such name already exists", option.getName());
         }
 
+        private void add(T option) {
+            list.add(option);
+            byName.put(option.getName(), option);
+        }
+
         public @Nullable T get(String name) {
-            return list.stream().filter(option -> option.getName().equals(name)).findFirst().orElse(null);
+            return byName.get(name);
         }
     }
 }
@@ -0,0 +1,191 @@
+package evergoodteam.chassis.config.option;
+
+import evergoodteam.chassis.client.gui.text.ChassisScreenTexts;
+import evergoodteam.chassis.client.gui.widget.TextFieldWidget;
+import evergoodteam.chassis.client.gui.widget.WidgetBase;
+import evergoodteam.chassis.client.gui.widget.interfaces.ConfigWidgetEntry;
+import evergoodteam.chassis.config.ConfigBase;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.text.Text;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Base class of options holding structured values, e.g. lists or maps, written as a single line of comma separated elements. <p>
+ * Values are parsed once, when read from the config file or the config screen, and kept in their parsed form: reading them never
+ * goes through strings again. Elements are trimmed, and commas, equal signs and backslashes inside them are escaped with a backslash.
+ */
+public abstract class ParsedOption<T> extends AbstractOption<T> {
+
+    public static final char SEPARATOR = ',';
+    public static final char ASSIGNMENT = '=';
+    private static final String ESCAPED = "\\,=";
+
+    public ParsedOption(String name, T defaultValue, Text displayName, Text tooltip) {
+        super(name, defaultValue, displayName, tooltip);
+    }
+
+    /**
+     * Parses the provided string, throwing an {@link IllegalArgumentException} if it or any of its elements is malformed.
+     */
+    public abstract T parse(String string);
+
+    @Override
+    protected abstract String valueToString(T value);
+
+    /**
+     * Returns {@code true} if the provided string can be {@link #parse parsed}.
+     */
+    public boolean isValid(String string) {
+        try {
+            parse(string);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public T getWrittenValue(ConfigBase config) {
+        Optional<String> op = config.getWrittenValue(this);
+        return op.filter(this::isValid).map(this::parse).orElseGet(this::getDefaultValue);
+    }
+
+    @Override
+    public void setValueFromString(String newValue) {
+        this.setValue(parse(newValue));
+    }
+
+    @Environment(value = EnvType.CLIENT)
+    @Override
+    public WidgetBase getConfigWidget(int width) {
+        return new ParsedConfigWidget<>(this, width);
+    }
+
+    /**
+     * Splits the provided string at every unescaped separator, returning the trimmed and still escaped parts, skipping empty ones.
+     */
+    public static List<String> split(String string, char separator) {
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '\\') i++;
+            else if (c == separator) {
+                addPart(result, string.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (start < string.length()) addPart(result, string.substring(start));
+        return result;
+    }
+
+    private static void addPart(List<String> parts, String part) {
+        String trimmed = part.trim();
+        if (!trimmed.isEmpty()) parts.add(trimmed);
+    }
+
+    /**
+     * Returns the index of the first unescaped occurrence of the provided character, or -1 if there's none.
+     */
+    public static int indexOfUnescaped(String string, char c) {
+        for (int i = 0; i < string.length(); i++) {
+            char current = string.charAt(i);
+            if (current == '\\') i++;
+            else if (current == c) return i;
+        }
+        return -1;
+    }
+
+    public static String escape(String string) {
+        StringBuilder builder = null;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (ESCAPED.indexOf(c) < 0) {
+                if (builder != null) builder.append(c);
+                continue;
+            }
+            if (builder == null) builder = new StringBuilder(string.length() + 8).append(string, 0, i);
+            builder.append('\\').append(c);
+        }
+        return builder == null ? string : builder.toString();
+    }
+
+    public static String unescape(String string) {
+        int first = string.indexOf('\\');
+        if (first < 0) return string;
+
+        StringBuilder builder = new StringBuilder(string.length()).append(string, 0, first);
+        for (int i = first; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '\\' && i + 1 < string.length()) c = string.charAt(++i);
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    @Environment(value = EnvType.CLIENT)
+    public static class ParsedConfigWidget<T> extends TextFieldWidget implements ConfigWidgetEntry {
+
+        public final ParsedOption<T> option;
+        private T shown;
+
+        public ParsedConfigWidget(ParsedOption<T> option, int width) {
+            super(width / 2, 0, 100, 20, Text.empty());
+            this.option = option;
+            this.shown = option.getValue();
+            this.setMaxLength(Short.MAX_VALUE);
+            this.setAddedHeight(2);
+            this.setTextSilently(option.valueToString(shown));
+            this.updateTooltip(true);
+            this.setChangedListener(text -> {
+                boolean valid = option.isValid(text);
+                if (valid) {
+                    T value = option.parse(text);
+                    shown = value;
+                    option.setValue(value);
+                }
+                updateTooltip(valid);
+            });
+        }
+
+        @Override
+        public void render(DrawContext context, int mouseX, int mouseY, float delta) {
+            pullValue();
+            super.render(context, mouseX, mouseY, delta);
+        }
+
+        /**
+         * Shows the option's value if it was changed elsewhere (e.g. reloaded from disk or received from a server). Pulled on the
+         * render thread rather than pushed by an update callback, so that the widget is never updated from other threads nor
+         * kept alive by the option once its screen is closed.
+         */
+        private void pullValue() {
+            T value = option.getValue();
+            if (value == shown || Objects.equals(value, shown)) return;
+            shown = value;
+
+            // Leaves the text being typed alone, if it already stands for the new value
+            if (option.isValid(getText()) && option.parse(getText()).equals(value)) return;
+            setTextSilently(option.valueToString(value));
+            setCursorToEnd();
+            updateTooltip(true);
+        }
+
+        private void updateTooltip(boolean valid) {
+            if (valid) this.setOrderedTooltip(option.getTooltip(), this.getEntryWidth());
+            else this.setOrderedTooltip(ChassisScreenTexts.INVALID);
+        }
+
+        @Override
+        public void renderCenteredText(DrawContext context) {
+            super.renderCenteredText(context);
+            context.drawTextWithShadow(textRenderer, option.getDisplayName(), this.x - 142, y + (this.height - 8) / 2, 16777215);
+        }
+    }
+}
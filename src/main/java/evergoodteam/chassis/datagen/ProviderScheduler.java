@@ -0,0 +1,132 @@
+package evergoodteam.chassis.datagen;
+
+import evergoodteam.chassis.common.resourcepack.GenerationCache;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static evergoodteam.chassis.util.Reference.CMI;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Runs the providers of every resource-pack on a single work-stealing pool, bounded by {@link #BUDGET} threads shared by all
+ * packs generating at the same time. <p>
+ * Providers start as soon as the providers they {@link TrackedProvider#getDependencies() depend on} are done, independent
+ * ones run in parallel. Generated files go through a single I/O thread, so providers never block on the disk and files are
+ * written one at a time regardless of how many packs are generating.
+ */
+public final class ProviderScheduler {
+
+    private static final Logger LOGGER = getLogger(CMI + "/D/Scheduler");
+    /**
+     * Maximum amount of providers running at the same time across every pack, leaving a core to the game
+     */
+    public static final int BUDGET = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final ForkJoinPool POOL = new ForkJoinPool(BUDGET, ProviderScheduler::newWorker, null, true);
+    private static final ExecutorService IO = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Chassis-Datagen-IO");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicInteger WORKERS = new AtomicInteger();
+
+    private ProviderScheduler() {
+    }
+
+    /**
+     * Returns the executor providers should use for their own asynchronous work, so that it counts towards the {@link #BUDGET}.
+     */
+    public static Executor getExecutor() {
+        return POOL;
+    }
+
+    /**
+     * Runs the provided providers of a pack, recording their outputs in the provided cache.
+     * The returned future completes once every provider is done and every file is written.
+     *
+     * @throws IllegalStateException if a provider depends on a missing provider or the dependencies are circular
+     */
+    public static CompletableFuture<Void> run(String pack, List<TrackedProvider> providers, GenerationCache cache) {
+        // Validated before anything is started, so that a bad graph never leaves providers writing files
+        List<TrackedProvider> ordered = sort(pack, providers);
+
+        QueuedDataWriter writer = new QueuedDataWriter(cache, IO);
+        Map<String, CompletableFuture<Void>> scheduled = new HashMap<>();
+        for (TrackedProvider provider : ordered) {
+            CompletableFuture<?>[] dependencies = provider.getDependencies().stream().map(scheduled::get).toArray(CompletableFuture[]::new);
+            scheduled.put(provider.getName(), CompletableFuture.allOf(dependencies)
+                    .thenComposeAsync(v -> time(pack, provider, writer), POOL));
+        }
+
+        long start = System.nanoTime();
+        return CompletableFuture.allOf(scheduled.values().toArray(new CompletableFuture[0]))
+                .thenCompose(v -> writer.flush())
+                .thenRun(() -> LOGGER.info("All {} providers for {} took {} ms, {} files written, {} unchanged",
+                        providers.size(), pack, millis(start), writer.getWritten(), writer.getSkipped()));
+    }
+
+    /**
+     * Runs the provided task on its own daemon thread. Meant for {@link evergoodteam.chassis.common.resourcepack.ResourcePackBase.ProviderRegistry
+     * registrations}, which block until their providers are done and mustn't take a worker from the pool while waiting.
+     */
+    public static CompletableFuture<Void> runInBackground(String pack, Runnable task) {
+        return CompletableFuture.runAsync(task, runnable -> {
+            Thread thread = new Thread(runnable, "Chassis-Datagen-" + pack);
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * Returns the provided providers in topological order, each after the providers it depends on.
+     *
+     * @throws IllegalStateException if a provider depends on a missing provider or the dependencies are circular
+     */
+    private static List<TrackedProvider> sort(String pack, List<TrackedProvider> providers) {
+        Map<String, TrackedProvider> byName = new LinkedHashMap<>();
+        providers.forEach(provider -> byName.put(provider.getName(), provider));
+
+        List<TrackedProvider> ordered = new ArrayList<>(providers.size());
+        Set<String> visited = new HashSet<>();
+        for (TrackedProvider provider : providers) visit(pack, provider, byName, visited, new LinkedHashSet<>(), ordered);
+        return ordered;
+    }
+
+    private static void visit(String pack, TrackedProvider provider, Map<String, TrackedProvider> byName, Set<String> visited,
+                              Set<String> visiting, List<TrackedProvider> ordered) {
+        if (visited.contains(provider.getName())) return;
+        if (!visiting.add(provider.getName()))
+            throw new IllegalStateException("Circular dependency between providers of %s: %s".formatted(pack, visiting));
+
+        for (String dependency : provider.getDependencies()) {
+            TrackedProvider required = byName.get(dependency);
+            if (required == null)
+                throw new IllegalStateException("Provider %s of %s depends on missing provider %s".formatted(provider.getName(), pack, dependency));
+            visit(pack, required, byName, visited, visiting, ordered);
+        }
+
+        visiting.remove(provider.getName());
+        visited.add(provider.getName());
+        ordered.add(provider);
+    }
+
+    private static CompletableFuture<Void> time(String pack, TrackedProvider provider, QueuedDataWriter writer) {
+        long start = System.nanoTime();
+        return provider.run(writer).thenRun(() -> LOGGER.info("{} for {} finished after {} ms", provider.getName(), pack, millis(start)));
+    }
+
+    private static long millis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("Chassis-Datagen-" + WORKERS.incrementAndGet());
+        thread.setDaemon(true);
+        // Default workers use the system class loader, which can't see mod classes
+        thread.setContextClassLoader(ProviderScheduler.class.getClassLoader());
+        return thread;
+    }
+}
@@ -0,0 +1,64 @@
+package evergoodteam.chassis.datagen;
+
+import com.google.common.hash.HashCode;
+import evergoodteam.chassis.common.resourcepack.GenerationCache;
+import net.minecraft.data.DataWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writer handed to the providers of a single generation, queuing files on the {@link ProviderScheduler}'s I/O stage instead of
+ * writing them from the provider's thread. Files generated with the same content as last time are skipped.
+ */
+final class QueuedDataWriter implements DataWriter {
+
+    private final GenerationCache cache;
+    private final Executor io;
+    private final Queue<CompletableFuture<Void>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    QueuedDataWriter(GenerationCache cache, Executor io) {
+        this.cache = cache;
+        this.io = io;
+    }
+
+    @Override
+    public void write(Path path, byte[] data, HashCode hashCode) {
+        if (cache.isUnchanged(path, hashCode)) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        pending.add(CompletableFuture.runAsync(() -> {
+            try {
+                Files.createDirectories(path.getParent());
+                Files.write(path, data);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to save file to " + path, e);
+            }
+        }, io));
+    }
+
+    /**
+     * Returns a future completed once every queued file is written, failing if any of them couldn't be.
+     */
+    CompletableFuture<Void> flush() {
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]));
+    }
+
+    int getWritten() {
+        return pending.size();
+    }
+
+    int getSkipped() {
+        return skipped.get();
+    }
+}
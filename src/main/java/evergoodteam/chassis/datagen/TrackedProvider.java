@@ -0,0 +1,47 @@
+package evergoodteam.chassis.datagen;
+
+import evergoodteam.chassis.common.resourcepack.GenerationCache;
+import evergoodteam.chassis.common.resourcepack.ResourcePackBase;
+import net.minecraft.data.DataProvider;
+import net.minecraft.data.DataWriter;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wraps the providers added to a {@link ResourcePackBase}, recording the files they write in the pack's {@link GenerationCache}.
+ */
+public class TrackedProvider implements DataProvider {
+
+    private final DataProvider provider;
+    private final ResourcePackBase resourcePack;
+    private final Set<String> dependencies;
+
+    public TrackedProvider(DataProvider provider, ResourcePackBase resourcePack, Set<String> dependencies) {
+        this.provider = provider;
+        this.resourcePack = resourcePack;
+        this.dependencies = dependencies;
+    }
+
+    public DataProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Returns the names of the providers of the same pack that must be done before this one is run.
+     */
+    public Set<String> getDependencies() {
+        return dependencies;
+    }
+
+    @Override
+    public CompletableFuture<?> run(DataWriter writer) {
+        GenerationCache cache = resourcePack.getGenerationCache();
+        return provider.run(cache == null ? writer : cache.track(getName(), writer));
+    }
+
+    @Override
+    public String getName() {
+        return provider.getName();
+    }
+}
@@ -1,17 +1,15 @@
 package evergoodteam.chassis.datagen.providers;
 
-import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingOutputStream;
 import com.google.gson.JsonElement;
+import evergoodteam.chassis.common.resourcepack.GenerationCache;
 import evergoodteam.chassis.common.resourcepack.ResourcePackBase;
+import evergoodteam.chassis.datagen.ProviderScheduler;
 import net.fabricmc.fabric.api.datagen.v1.FabricDataGenerator;
 import net.fabricmc.fabric.api.datagen.v1.FabricDataOutput;
 import net.minecraft.data.DataProvider;
 import net.minecraft.data.DataWriter;
-import net.minecraft.util.Util;
 import org.slf4j.Logger;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collections;
@@ -50,7 +48,7 @@ public abstract class AbstractResourceProvider implements DataProvider, FabricDa
             for (Path path : json.keySet()) {
                 DataProvider.writeToPath(writer, json.get(path), path);
             }
-        });
+        }, ProviderScheduler.getExecutor());
     }
 
     public static CompletableFuture<?> writeToPath(DataWriter writer, Path path, byte[] data) throws IOException {
@@ -59,17 +57,15 @@ public abstract class AbstractResourceProvider implements DataProvider, FabricDa
 
     public static CompletableFuture<?> writeToPath(DataWriter writer, Map<Path, byte[]> mappedData) throws IOException {
         return CompletableFuture.runAsync(() -> {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-
             mappedData.forEach(((path, data) -> {
-                HashingOutputStream hashingOutputStream = new HashingOutputStream(Hashing.sha256(), byteArrayOutputStream);
                 try {
-                    writer.write(path, data, hashingOutputStream.hash());
+                    // The writer skips files whose hash didn't change, so it has to be the hash of the actual content
+                    writer.write(path, data, GenerationCache.hash(data));
                 } catch (IOException e) {
                     LOGGER.error("Failed to save file to {}: {}", path, e);
                     throw new RuntimeException(e);
                 }
             }));
-        }, Util.getMainWorkerExecutor());
+        }, ProviderScheduler.getExecutor());
     }
 }
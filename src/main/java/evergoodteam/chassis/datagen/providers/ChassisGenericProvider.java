@@ -2,6 +2,7 @@ package evergoodteam.chassis.datagen.providers;
 
 import com.google.gson.JsonElement;
 import evergoodteam.chassis.common.resourcepack.ResourcePackBase;
+import evergoodteam.chassis.datagen.ProviderScheduler;
 import net.fabricmc.fabric.api.datagen.v1.FabricDataGenerator;
 import net.minecraft.data.DataProvider;
 import net.minecraft.data.DataWriter;
@@ -43,7 +44,7 @@ public class ChassisGenericProvider extends AbstractResourceProvider {
             for (Path path : json.keySet()) {
                 DataProvider.writeToPath(writer, json.get(path), path);
             }
-        });
+        }, ProviderScheduler.getExecutor());
     }
 
     @Override
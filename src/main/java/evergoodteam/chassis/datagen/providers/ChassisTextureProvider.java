@@ -1,5 +1,7 @@
 package evergoodteam.chassis.datagen.providers;
 
+import com.google.common.hash.HashCode;
+import evergoodteam.chassis.common.resourcepack.GenerationCache;
 import evergoodteam.chassis.common.resourcepack.ResourcePackBase;
 import evergoodteam.chassis.util.StringUtils;
 import evergoodteam.chassis.util.UrlUtils;
@@ -66,10 +68,21 @@ public class ChassisTextureProvider implements DataProvider, FabricDataGenerator
 
         Map<Path, byte[]> mappedData = new HashMap<>();
 
+        GenerationCache cache = resourcePack.getGenerationCache();
+
         textures.forEach((path, url) -> {
-            InputStream in;
-            try {
-                in = new URL(textures.get(path)).openStream();
+            HashCode input = GenerationCache.hash(url);
+            if (cache != null) {
+                cache.recordInput(path, input);
+                // Skips downloading textures whose url didn't change since they were last generated
+                byte[] reused = cache.reuse(path, input);
+                if (reused != null) {
+                    mappedData.put(path, reused);
+                    return;
+                }
+            }
+
+            try (InputStream in = new URL(url).openStream()) {
                 mappedData.put(path, in.readAllBytes());
             } catch (IOException e) {
                 LOGGER.error("Error on creating a texture .png file", e);
@@ -73,8 +73,8 @@ public class ResourcePackManagerMixin {
                     if (friendlyPath.split("/")[0].equals(friendlyPath.split("/")[1]))
                         friendlyPath = friendlyPath.split("/")[0];
 
-                    if (resourcePack.providerRegistry != null && !resourcePack.areProvidersDone())
-                        resourcePack.providerRegistry.registerProviders();
+                    // Every mod is initialized by now, generates in the background and the pack waits for it when opened
+                    resourcePack.startProviders();
                     if (finalClient) {
                         //LOGGER.warn("CLIENT PROVIDER FOR %s AT PATH %s".formatted(identifier, friendlyPath));
                         providersCopy.add(new ClientResourcePackProvider(friendlyPath, resourcePack.getName(), resourcePack.getDisplayName(), resourcePack.getMetadataKey(), resourcePack.getHexColor()));
@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import evergoodteam.chassis.common.group.ItemGroupBase;
 import evergoodteam.chassis.config.ConfigBase;
+import evergoodteam.chassis.config.ConfigWatcher;
 import net.fabricmc.fabric.api.item.v1.FabricItemSettings;
 import net.fabricmc.fabric.api.itemgroup.v1.ItemGroupEvents;
 import net.minecraft.block.Block;
@@ -44,6 +45,7 @@ public class RegistryHandler {
     // TODO: have only chassis register configs?
     public static void registerConfiguration(ConfigBase config) {
         CONFIGURATIONS.put(config.getIdentifier(), config);
+        ConfigWatcher.watch(config);
     }
 
     /**
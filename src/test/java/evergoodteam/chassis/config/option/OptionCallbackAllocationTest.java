@@ -0,0 +1,102 @@
+package evergoodteam.chassis.config.option;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that updating an option's value doesn't allocate, measured with the allocation counter of the current thread.
+ * Updates are averaged over many iterations, so that one-off allocations of the JVM itself don't fail the tests.
+ */
+class OptionCallbackAllocationTest {
+
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 100_000;
+    private static com.sun.management.ThreadMXBean threads;
+
+    @BeforeAll
+    static void setup() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    void setValueWithoutCallbacks() {
+        IntegerSliderOption option = new IntegerSliderOption("int", 0, ITERATIONS, 0);
+
+        assertNoAllocation(i -> option.setValue(i));
+    }
+
+    @Test
+    void setValueWithPrimitiveCallbacks() {
+        IntegerSliderOption intOption = new IntegerSliderOption("int", 0, ITERATIONS, 0);
+        DoubleSliderOption doubleOption = new DoubleSliderOption("double", 0, ITERATIONS, 0);
+        BooleanOption booleanOption = new BooleanOption("boolean", false);
+        int[] calls = new int[1];
+        intOption.addIntUpdateCallback(new IntOption.IntUpdateCallback() {
+            @Override
+            public void onUpdate(int newValue) {
+                calls[0]++;
+            }
+        });
+        doubleOption.addDoubleUpdateCallback(new DoubleOption.DoubleUpdateCallback() {
+            @Override
+            public void onUpdate(double newValue) {
+                calls[0]++;
+            }
+        });
+        booleanOption.addBoolUpdateCallback(new BoolOption.BoolUpdateCallback() {
+            @Override
+            public void onUpdate(boolean newValue) {
+                calls[0]++;
+            }
+        });
+
+        assertNoAllocation(i -> {
+            intOption.setValue(i);
+            doubleOption.setValue((double) i);
+            booleanOption.setValue((i & 1) == 0);
+        });
+        assertTrue(calls[0] > 0);
+    }
+
+    @Test
+    void setValueWithGenericCallbacks() {
+        StringSetOption option = new StringSetOption("string", "a", Set.of("a", "b"));
+        String[] values = {"a", "b"};
+        int[] calls = new int[1];
+        option.addUpdateCallback(new AbstractOption.OptionUpdateCallback<>() {
+            @Override
+            public void onUpdate(String newValue) {
+                calls[0]++;
+            }
+        });
+
+        assertNoAllocation(i -> option.setValue(values[i & 1]));
+        assertTrue(calls[0] > 0);
+    }
+
+    private static void assertNoAllocation(Update update) {
+        for (int i = 0; i < WARMUP; i++) update.run(i);
+
+        long thread = Thread.currentThread().getId();
+        threads.getThreadAllocatedBytes(thread);
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ITERATIONS; i++) update.run(i);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue(allocated < ITERATIONS, "Allocated %s bytes over %s updates".formatted(allocated, ITERATIONS));
+    }
+
+    private interface Update {
+
+        void run(int i);
+    }
+}